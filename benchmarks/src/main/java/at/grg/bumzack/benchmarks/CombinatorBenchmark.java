@@ -0,0 +1,69 @@
+package at.grg.bumzack.benchmarks;
+
+import at.grg.bumzack.Parser;
+import at.grg.bumzack.ParserFunc;
+import at.grg.bumzack.ParserInput;
+import at.grg.bumzack.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombinatorBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    public int size;
+
+    private String identifierInput;
+    private String quotedStringInput;
+    private String repeatedInput;
+
+    private final ParserFunc<String> identifierParser = Parser.identifier();
+    private final ParserFunc<String> quotedStringParser = Parser.quotedString();
+    private final ParserFunc<List<String>> zeroOrMoreParser = Parser.zeroOrMore(Parser.matchLiteral("ha"));
+    private final ParserFunc<List<String>> oneOrMoreParser = Parser.oneOrMore(Parser.matchLiteral("ha"));
+
+    @Setup
+    public void setup() {
+        identifierInput = Inputs.identifier(size);
+        quotedStringInput = Inputs.quotedString(size);
+        repeatedInput = Inputs.repeated("ha", size / 2);
+    }
+
+    @Benchmark
+    public Result<String> identifier() {
+        return identifierParser.parse(new ParserInput(identifierInput), 0);
+    }
+
+    @Benchmark
+    public Result<String> quotedString() {
+        return quotedStringParser.parse(new ParserInput(quotedStringInput), 0);
+    }
+
+    @Benchmark
+    public Result<List<String>> zeroOrMore() {
+        return zeroOrMoreParser.parse(new ParserInput(repeatedInput), 0);
+    }
+
+    @Benchmark
+    public Result<List<String>> oneOrMore() {
+        return oneOrMoreParser.parse(new ParserInput(repeatedInput), 0);
+    }
+}
@@ -0,0 +1,105 @@
+package at.grg.bumzack.benchmarks;
+
+import at.grg.bumzack.CsvFileParser;
+import at.grg.bumzack.CsvLine;
+import at.grg.bumzack.ParserCompiler;
+import at.grg.bumzack.ParserOptimizer;
+import at.grg.bumzack.ParserFunc;
+import at.grg.bumzack.ParserInput;
+import at.grg.bumzack.ParserStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static at.grg.bumzack.CsvParser.comment;
+import static at.grg.bumzack.CsvParser.csvdataLine;
+import static at.grg.bumzack.Parser.left;
+import static at.grg.bumzack.Parser.matchLiteral;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int lines;
+
+    private String comments;
+    private String dataLines;
+    private String file;
+
+    private final ParserFunc<String> comment = comment();
+    private final ParserFunc<CsvLine> dataLine = left(csvdataLine(), matchLiteral("\n"));
+    private final ParserFunc<CsvLine> compiledDataLine = ParserCompiler.compile(dataLine);
+    private final ParserFunc<CsvLine> optimizedDataLine = ParserOptimizer.optimize(dataLine);
+    private final CsvFileParser fileParser = new CsvFileParser();
+
+    @Setup
+    public void setup() {
+        comments = Inputs.impexComments(lines);
+        dataLines = Inputs.impexDataLines(lines);
+        file = Inputs.impexFile(lines);
+    }
+
+    @Benchmark
+    public int comments(final Blackhole bh) {
+        return parseAll(comment, comments, bh);
+    }
+
+    @Benchmark
+    public int dataLines(final Blackhole bh) {
+        return parseAll(dataLine, dataLines, bh);
+    }
+
+    @Benchmark
+    public int dataLinesCompiled(final Blackhole bh) {
+        return parseAll(compiledDataLine, dataLines, bh);
+    }
+
+    @Benchmark
+    public int dataLinesOptimized(final Blackhole bh) {
+        return parseAll(optimizedDataLine, dataLines, bh);
+    }
+
+    @Benchmark
+    public List<CsvLine> fileSequential() {
+        return fileParser.parse(file);
+    }
+
+    @Benchmark
+    public List<CsvLine> fileParallel() {
+        return fileParser.parse(file, ForkJoinPool.commonPool());
+    }
+
+    private static <T> int parseAll(final ParserFunc<T> parser, final String file, final Blackhole bh) {
+        final var input = new ParserInput(file);
+        var position = 0;
+        var count = 0;
+        while (!input.isEnd(position)) {
+            final var res = parser.parse(input, position);
+            if (res.getStatus().equals(ParserStatus.Error)) {
+                throw new IllegalStateException("benchmark input does not parse at " + input.getFailurePosition());
+            }
+            bh.consume(res.getOutput());
+            position = res.getPosition();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,81 @@
+package at.grg.bumzack.benchmarks;
+
+public class Inputs {
+
+    public static String identifier(final int size) {
+        final var sb = new StringBuilder(size + 1);
+        sb.append('a');
+        for (int i = 1; i < size; i++) {
+            sb.append(i % 7 == 0 ? '-' : (char) ('a' + i % 26));
+        }
+        return sb.append(' ').toString();
+    }
+
+    public static String quotedString(final int size) {
+        final var sb = new StringBuilder(size + 2);
+        sb.append('"');
+        for (int i = 0; i < size; i++) {
+            sb.append(i % 11 == 0 ? ' ' : (char) ('a' + i % 26));
+        }
+        return sb.append('"').toString();
+    }
+
+    public static String repeated(final String token, final int count) {
+        return token.repeat(count);
+    }
+
+    public static String deepXml(final int depth) {
+        final var sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append("  ".repeat(i)).append("<level").append(i).append(" depth=\"").append(i).append("\">\n");
+        }
+        sb.append("  ".repeat(depth)).append("<leaf label=\"bottom\"/>\n");
+        for (int i = depth - 1; i >= 0; i--) {
+            sb.append("  ".repeat(i)).append("</level").append(i).append(">\n");
+        }
+        return sb.toString();
+    }
+
+    public static String wideXml(final int width) {
+        final var sb = new StringBuilder();
+        sb.append("<catalog version=\"1\">\n");
+        for (int i = 0; i < width; i++) {
+            sb.append("    <product code=\"p").append(i).append("\" name=\"Product ").append(i).append("\">\n")
+                    .append("        <price currency=\"EUR\" value=\"").append(i).append(".99\"/>\n")
+                    .append("        <stock warehouse=\"main\" amount=\"").append(i % 100).append("\"/>\n")
+                    .append("    </product>\n");
+        }
+        sb.append("</catalog>\n");
+        return sb.toString();
+    }
+
+    public static String impexComments(final int lines) {
+        final var sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append("# comment line ").append(i).append(" describing the following block\n");
+        }
+        return sb.toString();
+    }
+
+    public static String impexDataLines(final int lines) {
+        final var sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append("INSERT_UPDATE;product").append(i).append(";catalog;staged;name-").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static String impexFile(final int lines) {
+        final var sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i % 10 == 0) {
+                sb.append("# block ").append(i / 10).append('\n');
+            } else if (i % 10 == 1) {
+                sb.append("INSERT_UPDATE Product;code[unique=true];catalog;version;name\n");
+            } else {
+                sb.append(";product").append(i).append(";catalog;staged;\"name \"\"").append(i).append("\"\"\"\n");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package at.grg.bumzack.benchmarks;
+
+import at.grg.bumzack.MappedCharSequence;
+import at.grg.bumzack.MemoTable;
+import at.grg.bumzack.ParallelXmlParser;
+import at.grg.bumzack.ParserCompiler;
+import at.grg.bumzack.ParserOptimizer;
+import at.grg.bumzack.ParserFunc;
+import at.grg.bumzack.ParserInput;
+import at.grg.bumzack.Result;
+import at.grg.bumzack.XmlDocument;
+import at.grg.bumzack.XmlElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static at.grg.bumzack.SimpleXmlElementParser.lazyXmlElement;
+import static at.grg.bumzack.SimpleXmlElementParser.xmlElement;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class DeepDocument {
+
+        @Param({"8", "64", "256"})
+        public int depth;
+
+        private String document;
+
+        @Setup
+        public void setup() {
+            document = Inputs.deepXml(depth);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WideDocument {
+
+        @Param({"10", "1000", "10000"})
+        public int width;
+
+        private String document;
+        private byte[] utf8;
+
+        @Setup
+        public void setup() {
+            document = Inputs.wideXml(width);
+            utf8 = document.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final ParserFunc<XmlElement> XML_ELEMENT = xmlElement();
+    private static final ParserFunc<XmlElement> COMPILED_XML_ELEMENT = ParserCompiler.compile(xmlElement());
+    private static final ParserFunc<XmlElement> OPTIMIZED_XML_ELEMENT = ParserOptimizer.optimize(xmlElement());
+    private static final ParserFunc<XmlElement> LAZY_XML_ELEMENT = lazyXmlElement();
+    private static final ParallelXmlParser PARALLEL_PARSER = new ParallelXmlParser();
+
+    @Benchmark
+    public Result<XmlElement> deepDocument(final DeepDocument state) {
+        return XML_ELEMENT.parse(new ParserInput(state.document), 0);
+    }
+
+    @Benchmark
+    public Result<XmlElement> wideDocument(final WideDocument state) {
+        return XML_ELEMENT.parse(new ParserInput(state.document), 0);
+    }
+
+    @Benchmark
+    public Result<XmlElement> wideDocumentPackrat(final WideDocument state) {
+        return XML_ELEMENT.parse(new ParserInput(state.document, new MemoTable(4096)), 0);
+    }
+
+    @Benchmark
+    public XmlElement wideDocumentSession(final WideDocument state) {
+        return XML_ELEMENT.parse(ParserInput.session(state.document), 0).getOutput();
+    }
+
+    @Benchmark
+    public Result<XmlElement> wideDocumentCompiled(final WideDocument state) {
+        return COMPILED_XML_ELEMENT.parse(new ParserInput(state.document), 0);
+    }
+
+    @Benchmark
+    public Result<XmlElement> wideDocumentOptimized(final WideDocument state) {
+        return OPTIMIZED_XML_ELEMENT.parse(new ParserInput(state.document), 0);
+    }
+
+    @Benchmark
+    public XmlElement wideDocumentParallel(final WideDocument state) {
+        return PARALLEL_PARSER.parse(state.document, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public XmlElement wideDocumentDecodeBytes(final WideDocument state) {
+        return COMPILED_XML_ELEMENT.parse(ParserInput.session(new String(state.utf8, StandardCharsets.UTF_8)), 0).getOutput();
+    }
+
+    @Benchmark
+    public XmlElement wideDocumentUtf8Bytes(final WideDocument state) {
+        return COMPILED_XML_ELEMENT.parse(ParserInput.session(MappedCharSequence.wrap(state.utf8)), 0).getOutput();
+    }
+
+    @Benchmark
+    public XmlElement wideDocumentLazy(final WideDocument state) {
+        return LAZY_XML_ELEMENT.parse(ParserInput.session(state.document), 0).getOutput();
+    }
+
+    @Benchmark
+    public XmlDocument wideDocumentColumnar(final WideDocument state) {
+        return XmlDocument.parse(state.document);
+    }
+}
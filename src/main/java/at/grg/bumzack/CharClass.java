@@ -0,0 +1,63 @@
+package at.grg.bumzack;
+
+// A CharPredicate with its answers for the ASCII range precomputed into two 64 bit masks.
+// Only characters above 127 fall through to the wrapped predicate.
+public final class CharClass implements CharPredicate {
+
+    public static final CharClass WHITESPACE = of(Character::isWhitespace);
+    public static final CharClass LETTER = of(Character::isLetter);
+    public static final CharClass IDENTIFIER_PART = of(c -> Character.isLetterOrDigit(c) || c == '-');
+
+    private final long low;
+    private final long high;
+    private final CharPredicate fallback;
+
+    private CharClass(final long low, final long high, final CharPredicate fallback) {
+        this.low = low;
+        this.high = high;
+        this.fallback = fallback;
+    }
+
+    public static CharClass of(final CharPredicate predicate) {
+        if (predicate instanceof CharClass) {
+            return (CharClass) predicate;
+        }
+        var low = 0L;
+        var high = 0L;
+        for (char c = 0; c < 64; c++) {
+            if (predicate.test(c)) {
+                low |= 1L << c;
+            }
+        }
+        for (char c = 64; c < 128; c++) {
+            if (predicate.test(c)) {
+                high |= 1L << c;
+            }
+        }
+        return new CharClass(low, high, predicate);
+    }
+
+    public static CharClass anyOf(final String chars) {
+        return of(c -> chars.indexOf(c) >= 0);
+    }
+
+    public static CharClass noneOf(final String chars) {
+        return of(c -> chars.indexOf(c) < 0);
+    }
+
+    @Override
+    public boolean test(final char c) {
+        if (c < 64) {
+            return (low & (1L << c)) != 0;
+        }
+        if (c < 128) {
+            return (high & (1L << c)) != 0;
+        }
+        return fallback.test(c);
+    }
+
+    @Override
+    public CharClass negate() {
+        return new CharClass(~low, ~high, fallback.negate());
+    }
+}
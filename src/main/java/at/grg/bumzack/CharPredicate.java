@@ -0,0 +1,19 @@
+package at.grg.bumzack;
+
+@FunctionalInterface
+public interface CharPredicate {
+
+    boolean test(final char c);
+
+    default CharPredicate negate() {
+        return c -> !test(c);
+    }
+
+    default CharPredicate or(final CharPredicate other) {
+        return c -> test(c) || other.test(c);
+    }
+
+    default CharPredicate and(final CharPredicate other) {
+        return c -> test(c) && other.test(c);
+    }
+}
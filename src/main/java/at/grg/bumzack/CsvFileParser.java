@@ -0,0 +1,148 @@
+package at.grg.bumzack;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class CsvFileParser {
+
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 64 * 1024;
+
+    // files with more chars than fit into one CharSequence are mapped in windows of this size
+    static final int WINDOW_BYTES = 1 << 30;
+
+    private static final ParserFunc<CsvLine> CSV = ParserCompiler.compile(ParserOptimizer.optimize(CsvParser.csv()));
+
+    private final ParserFunc<CsvLine> lineParser;
+    private final int minChunkSize;
+
+    public CsvFileParser() {
+        this(CSV, DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    public CsvFileParser(final ParserFunc<CsvLine> lineParser, final int minChunkSize) {
+        this.lineParser = lineParser;
+        this.minChunkSize = Math.max(minChunkSize, 1);
+    }
+
+    public List<CsvLine> parse(final CharSequence file) {
+        return parseChunk(file, 0, file.length(), new SymbolTable(), 0);
+    }
+
+    public List<CsvLine> parse(final Path path, final Charset charset, final ForkJoinPool pool) throws IOException {
+        if (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)) {
+            // a UTF-8 file has at most as many chars as bytes
+            if (Files.size(path) > Integer.MAX_VALUE) {
+                return parseWindows(MappedCharSequence.openWindows(path, WINDOW_BYTES), pool);
+            }
+            return parse(MappedCharSequence.open(path), pool);
+        }
+        // decoded into one String, so other charsets are limited to Integer.MAX_VALUE chars
+        return parse(Files.readString(path, charset), pool);
+    }
+
+    public List<CsvLine> parse(final CharSequence file, final ForkJoinPool pool) {
+        return parse(file, pool, new SymbolTable(), 0);
+    }
+
+    // one window after the other, each one split into parallel chunks. Windows are cut after a line break, a quoted
+    // value that spans a cut is not supported. Error positions count from the start of the first window
+    List<CsvLine> parseWindows(final List<? extends CharSequence> windows, final ForkJoinPool pool) {
+        final var symbols = new SymbolTable();
+        final var result = new ArrayList<CsvLine>();
+        var offset = 0L;
+        for (final var window : windows) {
+            result.addAll(parse(window, pool, symbols, offset));
+            offset += window.length();
+        }
+        return result;
+    }
+
+    private List<CsvLine> parse(final CharSequence file, final ForkJoinPool pool, final SymbolTable symbols, final long offset) {
+        final var chunkSize = Math.max(minChunkSize, file.length() / (pool.getParallelism() * 4) + 1);
+        final var boundaries = chunkBoundaries(file, chunkSize);
+        if (boundaries.length == 2) {
+            return parseChunk(file, 0, file.length(), symbols, offset);
+        }
+
+        final var tasks = new ArrayList<ForkJoinTask<List<CsvLine>>>(boundaries.length - 1);
+        for (int i = 0; i < boundaries.length - 1; i++) {
+            final var from = boundaries[i];
+            final var to = boundaries[i + 1];
+            tasks.add(pool.submit(() -> parseChunk(file, from, to, symbols, offset)));
+        }
+
+        final var chunks = new ArrayList<List<CsvLine>>(tasks.size());
+        var size = 0;
+        for (final var task : tasks) {
+            final var lines = task.join();
+            size += lines.size();
+            chunks.add(lines);
+        }
+        final var result = new ArrayList<CsvLine>(size);
+        chunks.forEach(result::addAll);
+        return result;
+    }
+
+    // offsets where a chunk may start: right after a line break that is not inside a quoted value
+    static int[] chunkBoundaries(final CharSequence file, final int chunkSize) {
+        final var input = ParserInput.of(file);
+        final var length = input.length();
+        final var boundaries = new ArrayList<Integer>();
+        boundaries.add(0);
+
+        if (input.indexOf('"', 0) < 0) {
+            var next = chunkSize;
+            while (next < length) {
+                final var lineBreak = input.indexOf('\n', next - 1);
+                if (lineBreak < 0 || lineBreak + 1 >= length) {
+                    break;
+                }
+                boundaries.add(lineBreak + 1);
+                next = lineBreak + 1 + chunkSize;
+            }
+        } else {
+            var quoted = false;
+            var next = chunkSize;
+            for (int i = 0; i < length - 1; i++) {
+                final var c = input.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == '\n' && !quoted && i + 1 >= next) {
+                    boundaries.add(i + 1);
+                    next = i + 1 + chunkSize;
+                }
+            }
+        }
+
+        boundaries.add(length);
+        return boundaries.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // offset is where file starts in the whole input, for the positions of errors
+    private List<CsvLine> parseChunk(final CharSequence file, final int from, final int to, final SymbolTable symbols, final long offset) {
+        final var input = ParserInput.session(file);
+        input.setSymbols(symbols);
+        final var lines = new ArrayList<CsvLine>();
+
+        var position = input.scan(from, CharClass.WHITESPACE);
+        while (position < to) {
+            final var res = lineParser.parse(input, position);
+            if (res.getStatus().equals(ParserStatus.Error)) {
+                throw new ParserException("invalid line, " + input.error(), offset + Math.max(input.getFailurePosition(), position));
+            }
+            if (res.getPosition() == position) {
+                throw new ParserException("line parser did not consume any input", offset + position);
+            }
+            lines.add(res.getOutput());
+            position = input.scan(res.getPosition(), CharClass.WHITESPACE);
+        }
+        return lines;
+    }
+}
@@ -2,6 +2,7 @@ package at.grg.bumzack;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -10,6 +11,10 @@ public class CsvLine {
     private CsvLineTypeEnum type;
     private Map<String, String> data;
     private String comment;
+    // item type of a header line like "INSERT_UPDATE Product", null if there is none
+    private String itemType;
+    // the cells after the line type, or all cells of a value line, with quotes removed
+    private List<String> cells;
 
     public CsvLine(final CsvLineTypeEnum type, final Map<String, String> data) {
         this.type = type;
@@ -21,6 +26,12 @@ public class CsvLine {
         this.comment = comment;
     }
 
+    public CsvLine(final CsvLineTypeEnum type, final String itemType, final List<String> cells) {
+        this.type = type;
+        this.itemType = itemType;
+        this.cells = cells;
+    }
+
     public CsvLineTypeEnum getType() {
         return type;
     }
@@ -37,6 +48,30 @@ public class CsvLine {
         this.data = data;
     }
 
+    public String getComment() {
+        return comment;
+    }
+
+    public void setComment(String comment) {
+        this.comment = comment;
+    }
+
+    public String getItemType() {
+        return itemType;
+    }
+
+    public void setItemType(String itemType) {
+        this.itemType = itemType;
+    }
+
+    public List<String> getCells() {
+        return cells;
+    }
+
+    public void setCells(List<String> cells) {
+        this.cells = cells;
+    }
+
     @Override
     public String toString() {
         final var collect = Optional.ofNullable(data).stream()
@@ -47,6 +82,8 @@ public class CsvLine {
         return "CsvLine{" +
                 "type=" + type +
                 ", comment='" + comment + "'" +
+                ", itemType='" + itemType + "'" +
+                ", cells=" + cells +
                 ", data=" + collect +
                 '}';
     }
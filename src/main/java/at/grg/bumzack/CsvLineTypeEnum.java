@@ -1,5 +1,5 @@
 package at.grg.bumzack;
 
 public enum CsvLineTypeEnum {
-    INSERT, REMOVE, COMMENT
+    INSERT, REMOVE, COMMENT, VALUES
 }
@@ -1,148 +1,120 @@
 package at.grg.bumzack;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import static at.grg.bumzack.Parser.*;
-import static at.grg.bumzack.SimpleXmlElementParser.attributes;
 
 public class CsvParser {
 
+    private static final ParserFunc<CsvLineTypeEnum> LINE_TYPE = named("lineType", oneOfLiterals(Map.of(
+            "INSERT_UPDATE", CsvLineTypeEnum.INSERT,
+            "INSERT", CsvLineTypeEnum.INSERT,
+            "REMOVE", CsvLineTypeEnum.REMOVE
+    )));
+
+    // "..." with "" for a quote inside, may span lines
+    private static final ParserFunc<String> QUOTED_CELL = right(
+            matchLiteral("\""),
+            left(
+                    map(
+                            zeroOrMore(either(takeWhile1(CharClass.noneOf("\"")), map(matchLiteral("\"\""), q -> "\""))),
+                            parts -> String.join("", parts)
+                    ),
+                    matchLiteral("\"")
+            )
+    );
+
+    private static final ParserFunc<String> CELL = either(QUOTED_CELL, takeWhile(CharClass.noneOf(";\r\n")));
+
+    private static final ParserFunc<List<String>> CELLS = zeroOrMore(right(matchLiteral(";"), CELL));
+
+    // "INSERT_UPDATE Product[batchmode=true]" has the item type with its modifiers, null if there is none
+    private static final ParserFunc<String> ITEM_TYPE = map(
+            pred(takeWhile(CharClass.noneOf(";\r\n")), t -> t.isEmpty() || Character.isWhitespace(t.charAt(0))),
+            t -> t.isBlank() ? null : t.trim()
+    );
+
+    private static final ParserFunc<CsvLine> CSV_DATA_LINE = named("csvDataLine", map(
+            pair(pair(LINE_TYPE, ITEM_TYPE), CELLS),
+            t -> new CsvLine(t.getLeft().getLeft(), t.getLeft().getRight(), t.getRight())
+    ));
+
+    // ";a;\"b\"" below a header line
+    private static final ParserFunc<CsvLine> CSV_VALUE_LINE = named("csvValueLine", map(
+            oneOrMore(right(matchLiteral(";"), CELL)),
+            cells -> new CsvLine(CsvLineTypeEnum.VALUES, null, cells)
+    ));
+
+    private static final ParserFunc<String> COMMENT = named("comment", right(
+            right(skipWhile(CharClass.WHITESPACE), matchLiteral("#")),
+            left(
+                    takeUntilAny("\n\r"),
+                    either(
+                            either(matchLiteral("\n"), matchLiteral("\r")),
+                            map(endOfInput(), v -> "")
+                    )
+            )
+    ));
+
+    private static final ParserFunc<String> LINE_END = either(
+            takeWhile1(CharClass.anyOf("\r\n")),
+            map(endOfInput(), v -> "")
+    );
+
+    private static final ParserFunc<CsvLine> CSV_COMMENT = named("csvComment", map(
+            COMMENT,
+            c -> new CsvLine(CsvLineTypeEnum.COMMENT, c)
+    ));
+
+    private static final ParserFunc<CsvLine> CSV_DATA = named("csvData", left(either(CSV_DATA_LINE, CSV_VALUE_LINE), LINE_END));
+
+    private static final ParserFunc<CsvLine> CSV = named("csv", whitespaceWrap(choice(CSV_COMMENT, csvData())));
 
     public static ParserFunc<Pair<String, List<Pair<String, String>>>> xmlElementStart() {
-        return input -> right(
-                matchLiteral("<"),
-                pair(
-                        identifier(),
-                        attributes()
-                )
-        ).parse(input);
+        return SimpleXmlElementParser.xmlElementStart();
     }
 
     public static ParserFunc<XmlElement> xmlSingleElement() {
-        return input -> {
-            final Function<Pair<String, List<Pair<String, String>>>, XmlElement> mapFn =
-                    p -> {
-                        final var xml = new XmlElement();
-                        xml.setName(p.getLeft());
-                        xml.setAttributes(p.getRight());
-                        return xml;
-                    };
-
-            return map(
-                    left(
-                            xmlElementStart(),
-                            matchLiteral("/>")
-                    ),
-                    mapFn
-            ).parse(input);
-        };
+        return SimpleXmlElementParser.xmlSingleElement();
     }
 
     public static ParserFunc<XmlElement> xmlOpenElement() {
-        return input -> {
-            final Function<Pair<String, List<Pair<String, String>>>, XmlElement> mapFn =
-                    p -> {
-                        final var xml = new XmlElement();
-                        xml.setName(p.getLeft());
-                        xml.setAttributes(p.getRight());
-                        return xml;
-                    };
-
-            return map(
-                    left(
-                            xmlElementStart(),
-                            matchLiteral(">")
-                    ),
-                    mapFn
-            ).parse(input);
-        };
+        return SimpleXmlElementParser.xmlOpenElement();
     }
 
     public static ParserFunc<String> xmlCloseElement(final String expectedName) {
-        return input -> {
-            final Predicate<String> pred = p -> StringUtils.equals(p, expectedName);
-
-            return pred(
-                    right(
-                            matchLiteral("</"),
-                            left(
-                                    identifier(),
-                                    matchLiteral(">")
-
-                            )),
-                    pred
-            ).parse(input);
-        };
+        return SimpleXmlElementParser.xmlCloseElement(expectedName);
     }
 
-    public static ParserFunc<CsvLine> csvdataLine() {
-        return input -> {
-            final Function<List<String>, CsvLine> mapFn = (elem) -> {
-                return new CsvLine(CsvLineTypeEnum.INSERT, Map.of("a", "n"));
-            };
-
-            final Function<String, ParserFunc<CsvLine>> andThenFn = xml -> map(
-                    zeroOrMore(pairLeft(matchLiteral(";"), identifier())),
-                    mapFn
-            );
-
-            final ParserFunc<CsvLine> parser = and_then(
-                    matchLiteral("INSERT_UPDATE"),
-                    andThenFn
-            );
-
-            return parser.parse(input);
-        };
+    public static ParserFunc<CsvLineTypeEnum> lineType() {
+        return LINE_TYPE;
     }
 
-    public static ParserFunc<CsvLine> csvComment() {
-        return input -> {
-
-            final ParserFunc<String> startComment = matchLiteral("#");
-            final ParserFunc<String> eol = matchLiteral("\n");
-
-            final var parser = whitespaceWrap(right(startComment, left(anyChar(), eol)));
+    public static ParserFunc<CsvLine> csvdataLine() {
+        return CSV_DATA_LINE;
+    }
 
-            final Function<Character, CsvLine> mapFn = (s) -> new CsvLine(CsvLineTypeEnum.COMMENT, Map.of("a", "b"));
+    public static ParserFunc<CsvLine> csvValueLine() {
+        return CSV_VALUE_LINE;
+    }
 
-            return map(parser, mapFn).parse(input);
-        };
+    public static ParserFunc<CsvLine> csvComment() {
+        return CSV_COMMENT;
     }
 
     public static ParserFunc<CsvLine> csv() {
-        return input -> whitespaceWrap(either(csvComment(), csvData())).parse(input);
+        return CSV;
     }
 
     private static ParserFunc<CsvLine> csvData() {
-        return input -> {
-            final ParserFunc<CsvLine> parser = null;
-            return parser.parse(input);
-        };
+        return CSV_DATA;
     }
 
     public static ParserFunc<String> comment() {
-        return input -> {
-            final Function<List<Character>, String> mapFn = l -> l.stream().map(String::valueOf).collect(Collectors.joining());
-
-            return map(
-                    right(
-                            right(space0(), matchLiteral("#")),
-                            left(
-                                    zeroOrMore(pred(anyChar(), c -> !(Objects.equals('\n', c) || Objects.equals('\r', c)))),
-                                    either(matchLiteral("\n"), matchLiteral("\r"))
-                            )
-                    ),
-                    mapFn
-            ).parse(input);
-        };
+        return COMMENT;
     }
 
 }
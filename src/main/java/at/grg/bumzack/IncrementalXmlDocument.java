@@ -0,0 +1,226 @@
+package at.grg.bumzack;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static at.grg.bumzack.SimpleXmlElementParser.xmlCloseTag;
+import static at.grg.bumzack.SimpleXmlElementParser.xmlElementStart;
+
+// An XML document that remembers the source span of every element. An edit re-parses only the smallest element
+// around it; the children of that element the edit did not touch are taken over without parsing them again.
+// Accepts the same documents as SimpleXmlElementParser.xmlElement() followed by the end of input.
+// The text is edited in place, an edit only moves the chars behind it instead of copying the whole document.
+public final class IncrementalXmlDocument {
+
+    private static final ParserFunc<Pair<String, List<Pair<String, String>>>> ELEMENT_START = ParserCompiler.compile(ParserOptimizer.optimize(xmlElementStart()));
+    private static final ParserFunc<String> CLOSE_TAG = ParserCompiler.compile(ParserOptimizer.optimize(xmlCloseTag()));
+
+    private final StringBuilder text;
+    private Node root;
+    private int lastParsedLength;
+
+    private IncrementalXmlDocument(final String text, final Node root) {
+        this.text = new StringBuilder(text);
+        this.root = root;
+        this.lastParsedLength = text.length();
+    }
+
+    public static IncrementalXmlDocument parse(final String text) {
+        return new IncrementalXmlDocument(text, parseDocument(text));
+    }
+
+    // a copy of the current text
+    public String getText() {
+        return text.toString();
+    }
+
+    public XmlElement getRoot() {
+        return root.element;
+    }
+
+    // chars that the last parse or edit actually ran the parser over
+    public int getLastParsedLength() {
+        return lastParsedLength;
+    }
+
+    public XmlElement edit(final int offset, final int removed, final String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > text.length()) {
+            throw new IndexOutOfBoundsException("edit " + offset + "+" + removed + " outside of 0.." + text.length());
+        }
+        // only the removed chars are kept, to undo the edit if the result does not parse
+        final var undo = text.substring(offset, offset + removed);
+        text.replace(offset, offset + removed, inserted);
+        final var delta = inserted.length() - removed;
+
+        // the elements from the root down to the smallest one that has the edit strictly inside its span
+        final var path = new ArrayList<Node>();
+        final var starts = new ArrayList<Integer>();
+        var node = root;
+        var start = root.start;
+        while (node != null && start < offset && offset + removed < start + node.length) {
+            path.add(node);
+            starts.add(start);
+            final var parentStart = start;
+            node = null;
+            for (final var child : children(path.get(path.size() - 1))) {
+                if (parentStart + child.start < offset && offset + removed < parentStart + child.start + child.length) {
+                    node = child;
+                    start = parentStart + child.start;
+                    break;
+                }
+            }
+        }
+
+        final var input = ParserInput.session(text);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            final var old = path.get(i);
+            final var oldStart = starts.get(i);
+            final var reusable = reusable(old, oldStart, offset, removed, delta);
+            final var fresh = element(input, oldStart, i == 0 ? 0 : starts.get(i - 1), reusable);
+            if (fresh != null && fresh.length == old.length + delta) {
+                replace(path, i, fresh, delta);
+                lastParsedLength = fresh.length;
+                for (final var child : children(fresh)) {
+                    final var candidate = reusable.get(oldStart + child.start);
+                    if (candidate != null && candidate.element == child.element) {
+                        lastParsedLength -= child.length;
+                    }
+                }
+                return root.element;
+            }
+        }
+
+        try {
+            root = parseDocument(text);
+        } catch (final ParserException e) {
+            text.replace(offset, offset + inserted.length(), undo);
+            throw e;
+        }
+        lastParsedLength = text.length();
+        return root.element;
+    }
+
+    private static Node parseDocument(final CharSequence text) {
+        final var input = ParserInput.session(text);
+        final var start = input.scan(0, CharClass.WHITESPACE);
+        final var node = element(input, start, 0, Map.of());
+        if (node == null) {
+            throw new ParserException("invalid xml element, " + input.error(), Math.max(input.getFailurePosition(), start));
+        }
+        final var end = input.scan(start + node.length, CharClass.WHITESPACE);
+        if (end != text.length()) {
+            throw new ParserException("unexpected content after the root element", end);
+        }
+        return node;
+    }
+
+    // children of the old element that lie completely before or after the edit, keyed by their start in the edited text
+    private static Map<Integer, Node> reusable(final Node old, final int oldStart, final int offset, final int removed, final int delta) {
+        final var reusable = new HashMap<Integer, Node>();
+        for (final var child : children(old)) {
+            final var childStart = oldStart + child.start;
+            if (childStart + child.length <= offset) {
+                reusable.put(childStart, child);
+            } else if (childStart >= offset + removed) {
+                reusable.put(childStart + delta, child);
+            }
+        }
+        return reusable;
+    }
+
+    private static Node element(final ParserInput input, final int start, final int parentStart, final Map<Integer, Node> reusable) {
+        final var head = ELEMENT_START.parse(input, start);
+        if (head.getStatus().equals(ParserStatus.Error)) {
+            return null;
+        }
+        final var element = new XmlElement();
+        element.setName(head.getOutput().getLeft());
+        element.setAttributes(head.getOutput().getRight());
+
+        var position = head.getPosition();
+        if (input.startsWith("/>", position)) {
+            return new Node(element, start - parentStart, position + 2 - start, null);
+        }
+        if (!input.startsWith(">", position)) {
+            input.fail(position);
+            return null;
+        }
+        position++;
+
+        final var children = new ArrayList<Node>();
+        final var elements = new ArrayList<XmlElement>();
+        while (!input.startsWith("</", position)) {
+            final var childStart = input.scan(position, CharClass.WHITESPACE);
+            final var reused = reusable.get(childStart);
+            final Node child;
+            if (reused != null) {
+                child = new Node(reused.element, childStart - start, reused.length, reused.children);
+            } else {
+                child = element(input, childStart, start, Map.of());
+                if (child == null) {
+                    return null;
+                }
+            }
+            children.add(child);
+            elements.add(child.element);
+            position = input.scan(childStart + child.length, CharClass.WHITESPACE);
+        }
+
+        final var close = CLOSE_TAG.parse(input, position);
+        if (close.getStatus().equals(ParserStatus.Error) || !StringUtils.equals(close.getOutput(), element.getName())) {
+            input.fail(position);
+            return null;
+        }
+        element.setChildren(elements);
+        return new Node(element, start - parentStart, close.getPosition() - start, children);
+    }
+
+    private void replace(final List<Node> path, final int level, final Node fresh, final int delta) {
+        if (level == 0) {
+            root = fresh;
+            return;
+        }
+        var replaced = path.get(level);
+        path.get(level - 1).replaceChild(replaced, fresh);
+        replaced = fresh;
+        for (int i = level - 1; i >= 0; i--) {
+            final var ancestor = path.get(i);
+            ancestor.length += delta;
+            final var siblings = ancestor.children;
+            for (int j = siblings.indexOf(replaced) + 1; j < siblings.size(); j++) {
+                siblings.get(j).start += delta;
+            }
+            replaced = ancestor;
+        }
+    }
+
+    private static List<Node> children(final Node node) {
+        return node.children == null ? List.of() : node.children;
+    }
+
+    private static final class Node {
+        private final XmlElement element;
+        // relative to the start of the parent, absolute for the root
+        private int start;
+        private int length;
+        private final List<Node> children;
+
+        private Node(final XmlElement element, final int start, final int length, final List<Node> children) {
+            this.element = element;
+            this.start = start;
+            this.length = length;
+            this.children = children;
+        }
+
+        private void replaceChild(final Node old, final Node fresh) {
+            final var index = children.indexOf(old);
+            children.set(index, fresh);
+            element.getChildren().set(index, fresh.element);
+        }
+    }
+}
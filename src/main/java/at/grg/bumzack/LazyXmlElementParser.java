@@ -0,0 +1,179 @@
+package at.grg.bumzack;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Parses the same elements as SimpleXmlElementParser.xmlElement(), but names and attributes are only recorded as
+// slices into the input and become Strings when they are read. Closing tags are compared in place.
+// Only input that cannot change is sliced; on a reused buffer the Strings are built right away.
+final class LazyXmlElementParser extends ParserNode.Primitive<XmlElement> {
+
+    private static final int[] NO_ATTRIBUTES = new int[0];
+
+    LazyXmlElementParser() {
+        super("xmlElement", CharClass.of(c -> c == '<' || Character.isWhitespace(c)), false);
+    }
+
+    @Override
+    public String getExpectation() {
+        return "\"<\"";
+    }
+
+    @Override
+    public Result<XmlElement> parse(final ParserInput input, final int position) {
+        final var end = new int[1];
+        final var element = element(input, position, end);
+        if (element == null) {
+            return input.fail(position);
+        }
+        return input.ok(element, end[0]);
+    }
+
+    // the element with the whitespace around it, null on failure; end[0] is set to the position after it
+    private XmlElement element(final ParserInput input, final int position, final int[] end) {
+        final var start = input.scan(position, CharClass.WHITESPACE);
+        if (!input.startsWith("<", start)) {
+            input.fail(start, "\"<\"");
+            return null;
+        }
+        final var nameEnd = identifier(input, start + 1);
+        if (nameEnd < 0) {
+            return null;
+        }
+
+        var slices = NO_ATTRIBUTES;
+        var count = 0;
+        var at = nameEnd;
+        final var span = new int[4];
+        while (true) {
+            final var next = attribute(input, at, span);
+            if (next < 0) {
+                break;
+            }
+            if (count + 4 > slices.length) {
+                slices = Arrays.copyOf(slices, Math.max(8, slices.length * 2));
+            }
+            System.arraycopy(span, 0, slices, count, 4);
+            count += 4;
+            at = next;
+        }
+
+        final var spans = new int[count + 2];
+        spans[0] = start + 1;
+        spans[1] = nameEnd;
+        System.arraycopy(slices, 0, spans, 2, count);
+        final var element = input.isImmutable() ? XmlElement.ofSlices(input.getChars(), spans) : copy(input, spans);
+
+        if (input.startsWith("/>", at)) {
+            end[0] = input.scan(at + 2, CharClass.WHITESPACE);
+            return element;
+        }
+        if (!input.startsWith(">", at)) {
+            input.fail(at, "\"/>\"");
+            input.fail(at, "\">\"");
+            return null;
+        }
+
+        final var children = new ArrayList<XmlElement>();
+        var childEnd = at + 1;
+        while (!input.isEnd(childEnd)) {
+            final var child = element(input, childEnd, end);
+            if (child == null) {
+                break;
+            }
+            children.add(child);
+            childEnd = end[0];
+        }
+
+        final var closeEnd = closeTag(input, start + 1, nameEnd, childEnd);
+        if (closeEnd < 0) {
+            return null;
+        }
+        element.setChildren(children);
+        end[0] = input.scan(closeEnd, CharClass.WHITESPACE);
+        return element;
+    }
+
+    private static XmlElement copy(final ParserInput input, final int[] spans) {
+        final var element = new XmlElement();
+        element.setName(input.slice(spans[0], spans[1]));
+        final var attributes = new ArrayList<Pair<String, String>>((spans.length - 2) / 4);
+        for (int i = 2; i < spans.length; i += 4) {
+            attributes.add(Pair.of(input.slice(spans[i], spans[i + 1]), input.slice(spans[i + 2], spans[i + 3])));
+        }
+        element.setAttributes(attributes);
+        return element;
+    }
+
+    // one " key=\"value\"" at position, like right(space1, attributePair). Fills span with key start, key end,
+    // value start and value end and returns the position after it, or -1 with the position left before the space
+    static int attribute(final ParserInput input, final int position, final int[] span) {
+        final var keyStart = input.scan(position, CharClass.WHITESPACE);
+        if (keyStart == position) {
+            return -1;
+        }
+        final var keyEnd = identifier(input, keyStart);
+        if (keyEnd < 0) {
+            return -1;
+        }
+        if (!input.startsWith("=\"", keyEnd)) {
+            input.fail(keyEnd, "\"=\\\"\"");
+            return -1;
+        }
+        final var valueEnd = input.indexOf('"', keyEnd + 2);
+        if (valueEnd < 0) {
+            input.fail(input.length(), "\"\\\"\"");
+            return -1;
+        }
+        span[0] = keyStart;
+        span[1] = keyEnd;
+        span[2] = keyEnd + 2;
+        span[3] = valueEnd;
+        return valueEnd + 1;
+    }
+
+    // the "</name>" at position for the name between nameStart and nameEnd, compared without building Strings.
+    // Returns the position after it or -1
+    static int closeTag(final ParserInput input, final int nameStart, final int nameEnd, final int position) {
+        if (!input.startsWith("</", position)) {
+            input.fail(position, "\"</\"");
+            return -1;
+        }
+        final var closeEnd = identifier(input, position + 2);
+        if (closeEnd < 0) {
+            return -1;
+        }
+        if (!sameChars(input, nameStart, nameEnd, position + 2, closeEnd)) {
+            input.fail(position + 2, "\"" + input.slice(nameStart, nameEnd) + "\"");
+            return -1;
+        }
+        if (!input.startsWith(">", closeEnd)) {
+            input.fail(closeEnd, "\">\"");
+            return -1;
+        }
+        return closeEnd + 1;
+    }
+
+    private static boolean sameChars(final ParserInput input, final int from, final int to, final int otherFrom, final int otherTo) {
+        if (to - from != otherTo - otherFrom) {
+            return false;
+        }
+        for (int i = 0; i < to - from; i++) {
+            if (input.charAt(from + i) != input.charAt(otherFrom + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // end of the identifier at position or -1
+    static int identifier(final ParserInput input, final int position) {
+        if (input.isEnd(position) || !CharClass.LETTER.test(input.charAt(position))) {
+            input.fail(position, "identifier");
+            return -1;
+        }
+        return input.scan(position + 1, CharClass.IDENTIFIER_PART);
+    }
+}
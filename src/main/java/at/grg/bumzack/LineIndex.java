@@ -0,0 +1,40 @@
+package at.grg.bumzack;
+
+import java.util.Arrays;
+
+// Offsets where lines start, found by scanning only as far as the largest offset asked for so far.
+public final class LineIndex {
+
+    private final CharSequence chars;
+    private int[] starts = new int[16];
+    private int lines = 1;
+    private int scanned;
+
+    LineIndex(final CharSequence chars) {
+        this.chars = chars;
+    }
+
+    // 1-based
+    public int line(final int offset) {
+        scanTo(offset);
+        final var found = Arrays.binarySearch(starts, 0, lines, offset);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    // 1-based
+    public int column(final int offset) {
+        return offset - starts[line(offset) - 1] + 1;
+    }
+
+    private void scanTo(final int offset) {
+        final var end = Math.min(offset, chars.length());
+        for (; scanned < end; scanned++) {
+            if (chars.charAt(scanned) == '\n') {
+                if (lines == starts.length) {
+                    starts = Arrays.copyOf(starts, lines * 2);
+                }
+                starts[lines++] = scanned + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package at.grg.bumzack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Matches the longest of a set of literals in one pass over the input and returns the value mapped to it.
+// The trie is flattened into arrays: the edges of a node are a sorted slice of labels/targets.
+public final class LiteralTrie<T> extends ParserNode.Primitive<T> {
+
+    private final int[] edgeStart;
+    private final char[] labels;
+    private final int[] targets;
+    private final boolean[] terminal;
+    private final Object[] values;
+    private final String expectation;
+
+    private LiteralTrie(final Builder root, final int nodes, final int edges, final CharClass first) {
+        super("oneOfLiterals", first, root.terminal);
+        this.edgeStart = new int[nodes + 1];
+        this.labels = new char[edges];
+        this.targets = new int[edges];
+        this.terminal = new boolean[nodes];
+        this.values = new Object[nodes];
+
+        final var queue = new ArrayList<Builder>(nodes);
+        queue.add(root);
+        var edge = 0;
+        for (int node = 0; node < queue.size(); node++) {
+            final var builder = queue.get(node);
+            terminal[node] = builder.terminal;
+            values[node] = builder.value;
+            edgeStart[node] = edge;
+            for (final var child : builder.children.entrySet()) {
+                labels[edge] = child.getKey();
+                targets[edge] = queue.size();
+                queue.add(child.getValue());
+                edge++;
+            }
+        }
+        edgeStart[nodes] = edge;
+        this.expectation = "one of " + String.join(", ", getLiterals());
+    }
+
+    public static <T> LiteralTrie<T> of(final Map<String, T> literals) {
+        if (literals.isEmpty()) {
+            throw new IllegalArgumentException("at least one literal is needed");
+        }
+        final var root = new Builder();
+        var nodes = 1;
+        final var first = new StringBuilder();
+        for (final var literal : literals.entrySet()) {
+            var node = root;
+            final var key = literal.getKey();
+            for (int i = 0; i < key.length(); i++) {
+                final var c = key.charAt(i);
+                var child = node.children.get(c);
+                if (child == null) {
+                    child = new Builder();
+                    node.children.put(c, child);
+                    nodes++;
+                }
+                node = child;
+            }
+            node.terminal = true;
+            node.value = literal.getValue();
+            if (!key.isEmpty()) {
+                first.append(key.charAt(0));
+            }
+        }
+        return new LiteralTrie<>(root, nodes, nodes - 1, CharClass.anyOf(first.toString()));
+    }
+
+    public List<String> getLiterals() {
+        final var literals = new ArrayList<String>();
+        collect(0, new StringBuilder(), literals);
+        return literals;
+    }
+
+    @Override
+    public String getExpectation() {
+        return expectation;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Result<T> parse(final ParserInput input, final int position) {
+        var node = 0;
+        var pos = position;
+        var matchedEnd = terminal[0] ? position : -1;
+        var matchedNode = 0;
+
+        while (edgeStart[node] < edgeStart[node + 1] && !input.isEnd(pos)) {
+            final var edge = Arrays.binarySearch(labels, edgeStart[node], edgeStart[node + 1], input.charAt(pos));
+            if (edge < 0) {
+                break;
+            }
+            node = targets[edge];
+            pos++;
+            if (terminal[node]) {
+                matchedEnd = pos;
+                matchedNode = node;
+            }
+        }
+
+        if (matchedEnd < 0) {
+            return input.fail(position, expectation);
+        }
+        return input.ok((T) values[matchedNode], matchedEnd);
+    }
+
+    private void collect(final int node, final StringBuilder prefix, final List<String> literals) {
+        if (terminal[node]) {
+            literals.add(prefix.toString());
+        }
+        for (int edge = edgeStart[node]; edge < edgeStart[node + 1]; edge++) {
+            prefix.append(labels[edge]);
+            collect(targets[edge], prefix, literals);
+            prefix.setLength(prefix.length() - 1);
+        }
+    }
+
+    private static final class Builder {
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+        private boolean terminal;
+        private Object value;
+    }
+}
@@ -0,0 +1,287 @@
+package at.grg.bumzack;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A CharSequence over UTF-8 (or ASCII) bytes, memory-mapped from a file or wrapped around a buffer, so large inputs
+// never have to be decoded onto the heap. Pure ASCII content is indexed byte for byte. Otherwise a checkpoint every
+// 1024 chars plus a per-thread cursor keep charAt cheap for the mostly sequential access of the parsers.
+public final class MappedCharSequence implements CharSequence {
+
+    static final int DEFAULT_REGION_BITS = 30;
+    // a wrapped buffer is one region, its offsets fit into an int
+    private static final int WRAPPED_REGION_BITS = 31;
+    private static final int CHECKPOINT_BITS = 10;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final ByteBuffer[] regions;
+    private final int regionBits;
+    private final long regionMask;
+    private final long byteStart;
+    private final long byteEnd;
+    private final boolean ascii;
+    private final int length;
+    private final int[] checkpointChars;
+    private final long[] checkpointBytes;
+    private final ThreadLocal<Cursor> cursors;
+
+    private MappedCharSequence(final ByteBuffer[] regions, final int regionBits, final long byteStart, final long byteEnd) {
+        this.regions = regions;
+        this.regionBits = regionBits;
+        this.regionMask = (1L << regionBits) - 1;
+        this.byteStart = byteStart;
+        this.byteEnd = byteEnd;
+
+        final var scratch = new byte[SCAN_BUFFER_SIZE];
+        this.ascii = isAscii(scratch);
+        if (ascii) {
+            if (byteEnd - byteStart > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("too many chars for one CharSequence, use openWindows");
+            }
+            this.length = (int) (byteEnd - byteStart);
+            this.checkpointChars = null;
+            this.checkpointBytes = null;
+            this.cursors = null;
+        } else {
+            final var size = (int) Math.min(((byteEnd - byteStart) >> CHECKPOINT_BITS) + 2, Integer.MAX_VALUE);
+            var chars = new int[size];
+            var bytes = new long[size];
+            var count = 0L;
+            var checkpoints = 0;
+            for (long offset = byteStart; offset < byteEnd; ) {
+                final var n = (int) Math.min(scratch.length, byteEnd - offset);
+                read(offset, scratch, n);
+                for (int i = 0; i < n; i++) {
+                    final var b = scratch[i];
+                    if ((b & 0xC0) == 0x80) {
+                        continue;
+                    }
+                    final var width = (b & 0xF8) == 0xF0 ? 2 : 1;
+                    while (((long) checkpoints << CHECKPOINT_BITS) < count + width) {
+                        if (checkpoints == chars.length) {
+                            chars = Arrays.copyOf(chars, checkpoints * 2);
+                            bytes = Arrays.copyOf(bytes, checkpoints * 2);
+                        }
+                        chars[checkpoints] = (int) count;
+                        bytes[checkpoints] = offset + i;
+                        checkpoints++;
+                    }
+                    count += width;
+                }
+                offset += n;
+                if (count > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("too many chars for one CharSequence, use openWindows");
+                }
+            }
+            this.length = (int) count;
+            this.checkpointChars = chars;
+            this.checkpointBytes = bytes;
+            this.cursors = ThreadLocal.withInitial(Cursor::new);
+        }
+    }
+
+    public static MappedCharSequence open(final Path path) throws IOException {
+        return open(path, DEFAULT_REGION_BITS);
+    }
+
+    static MappedCharSequence open(final Path path, final int regionBits) throws IOException {
+        final var regions = map(path, regionBits);
+        return new MappedCharSequence(regions, regionBits, 0, size(regions));
+    }
+
+    // the bytes between position and limit, read in place
+    public static MappedCharSequence wrap(final ByteBuffer utf8) {
+        final var region = utf8.slice();
+        return new MappedCharSequence(new ByteBuffer[]{region}, WRAPPED_REGION_BITS, 0, region.limit());
+    }
+
+    public static MappedCharSequence wrap(final byte[] utf8) {
+        return wrap(ByteBuffer.wrap(utf8));
+    }
+
+    // splits the file into windows of at most windowBytes, cut after a '\n' so no line and no UTF-8 sequence is split
+    public static List<MappedCharSequence> openWindows(final Path path, final int windowBytes) throws IOException {
+        return openWindows(path, windowBytes, DEFAULT_REGION_BITS);
+    }
+
+    static List<MappedCharSequence> openWindows(final Path path, final int windowBytes, final int regionBits) throws IOException {
+        final var regions = map(path, regionBits);
+        final var size = size(regions);
+        final var windows = new ArrayList<MappedCharSequence>();
+        final var regionMask = (1L << regionBits) - 1;
+
+        var start = 0L;
+        while (start < size) {
+            var end = Math.min(start + windowBytes, size);
+            if (end < size) {
+                var cut = end;
+                while (cut > start && regions[(int) ((cut - 1) >>> regionBits)].get((int) ((cut - 1) & regionMask)) != '\n') {
+                    cut--;
+                }
+                if (cut > start) {
+                    end = cut;
+                }
+            }
+            windows.add(new MappedCharSequence(regions, regionBits, start, end));
+            start = end;
+        }
+        return windows;
+    }
+
+    public boolean isAscii() {
+        return ascii;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        if (ascii) {
+            return (char) (byteAt(byteStart + index) & 0xFF);
+        }
+
+        final var cursor = cursors.get();
+        if (cursor.byteOffset < 0 || index < cursor.charIndex || index - cursor.charIndex > (1 << CHECKPOINT_BITS)) {
+            final var checkpoint = index >>> CHECKPOINT_BITS;
+            cursor.charIndex = checkpointChars[checkpoint];
+            cursor.byteOffset = checkpointBytes[checkpoint];
+        }
+
+        while (true) {
+            final var b0 = byteAt(cursor.byteOffset);
+            final var width = (b0 & 0xF8) == 0xF0 ? 2 : 1;
+            if (index < cursor.charIndex + width) {
+                return decode(cursor.byteOffset, b0, index - cursor.charIndex);
+            }
+            cursor.charIndex += width;
+            cursor.byteOffset = nextLead(cursor.byteOffset);
+        }
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        if (ascii) {
+            final var bytes = new byte[end - start];
+            read(byteStart + start, bytes, bytes.length);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+        final var sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            sb.append(charAt(i));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+
+    private boolean isAscii(final byte[] scratch) {
+        for (long offset = byteStart; offset < byteEnd; ) {
+            final var n = (int) Math.min(scratch.length, byteEnd - offset);
+            read(offset, scratch, n);
+            for (int i = 0; i < n; i++) {
+                if (scratch[i] < 0) {
+                    return false;
+                }
+            }
+            offset += n;
+        }
+        return true;
+    }
+
+    private char decode(final long offset, final byte b0, final int surrogate) {
+        if (b0 >= 0) {
+            return (char) b0;
+        }
+        if ((b0 & 0xE0) == 0xC0) {
+            return (char) (((b0 & 0x1F) << 6) | (continuation(offset + 1)));
+        }
+        if ((b0 & 0xF0) == 0xE0) {
+            return (char) (((b0 & 0x0F) << 12) | (continuation(offset + 1) << 6) | continuation(offset + 2));
+        }
+        if ((b0 & 0xF8) == 0xF0) {
+            final var codePoint = ((b0 & 0x07) << 18) | (continuation(offset + 1) << 12)
+                    | (continuation(offset + 2) << 6) | continuation(offset + 3);
+            return surrogate == 0 ? Character.highSurrogate(codePoint) : Character.lowSurrogate(codePoint);
+        }
+        return '\uFFFD';
+    }
+
+    private int continuation(final long offset) {
+        if (offset >= byteEnd) {
+            return 0;
+        }
+        return byteAt(offset) & 0x3F;
+    }
+
+    private long nextLead(final long offset) {
+        var next = offset + 1;
+        while (next < byteEnd && next - offset < 4 && (byteAt(next) & 0xC0) == 0x80) {
+            next++;
+        }
+        return next;
+    }
+
+    private byte byteAt(final long offset) {
+        return regions[(int) (offset >>> regionBits)].get((int) (offset & regionMask));
+    }
+
+    private void read(final long offset, final byte[] target, final int count) {
+        var done = 0;
+        while (done < count) {
+            final var position = offset + done;
+            final var region = regions[(int) (position >>> regionBits)].duplicate();
+            final var inRegion = (int) (position & regionMask);
+            final var n = Math.min(count - done, region.limit() - inRegion);
+            region.position(inRegion);
+            region.get(target, done, n);
+            done += n;
+        }
+    }
+
+    private static MappedByteBuffer[] map(final Path path, final int regionBits) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final var size = channel.size();
+            final var regionSize = 1L << regionBits;
+            final var count = (int) ((size + regionSize - 1) / regionSize);
+            final var regions = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                final var start = i * regionSize;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, size - start));
+            }
+            return regions;
+        }
+    }
+
+    private static long size(final ByteBuffer[] regions) {
+        var size = 0L;
+        for (final var region : regions) {
+            size += region.limit();
+        }
+        return size;
+    }
+
+    private static final class Cursor {
+        private int charIndex;
+        private long byteOffset = -1;
+    }
+}
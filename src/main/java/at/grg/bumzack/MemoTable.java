@@ -0,0 +1,103 @@
+package at.grg.bumzack;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Results of memo() rules keyed by parser id and position only, so a table belongs to one input: clear() it before
+// parsing another one, or stale results of the old input are returned. Only one parse may use a table at a time; the
+// counters can be read from other threads while it runs.
+public final class MemoTable {
+
+    private static final AtomicInteger PARSER_IDS = new AtomicInteger();
+
+    private final long[] keys;
+    private final Result<?>[] results;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public MemoTable(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        final var size = Integer.highestOneBit(capacity - 1) << 1;
+        this.keys = new long[Math.max(size, 1)];
+        this.results = new Result<?>[keys.length];
+        this.mask = keys.length - 1;
+        Arrays.fill(keys, -1L);
+    }
+
+    static int nextParserId() {
+        return PARSER_IDS.getAndIncrement();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <OUTPUT> Result<OUTPUT> get(final int parserId, final int position) {
+        final var key = key(parserId, position);
+        final var slot = slot(key);
+        if (keys[slot] == key) {
+            hits.increment();
+            return (Result<OUTPUT>) results[slot];
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(final int parserId, final int position, final Result<?> result) {
+        final var key = key(parserId, position);
+        final var slot = slot(key);
+        if (keys[slot] != -1L && keys[slot] != key) {
+            evictions.increment();
+        }
+        keys[slot] = key;
+        results[slot] = result;
+    }
+
+    // forgets all results and resets the counters, for the next input
+    public void clear() {
+        Arrays.fill(keys, -1L);
+        Arrays.fill(results, null);
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static long key(final int parserId, final int position) {
+        return ((long) parserId << 32) | (position & 0xffffffffL);
+    }
+
+    private int slot(final long key) {
+        var h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        return (int) h & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoTable{" +
+                "capacity=" + keys.length +
+                ", hits=" + hits.sum() +
+                ", misses=" + misses.sum() +
+                ", evictions=" + evictions.sum() +
+                '}';
+    }
+}
@@ -0,0 +1,192 @@
+package at.grg.bumzack;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static at.grg.bumzack.SimpleXmlElementParser.xmlCloseTag;
+import static at.grg.bumzack.SimpleXmlElementParser.xmlElement;
+import static at.grg.bumzack.SimpleXmlElementParser.xmlElementStart;
+
+// Parses the children of the root element in parallel. A pre-scan that only tracks tag nesting finds where the
+// top-level children start, runs of siblings are parsed as tasks on a fork-join pool and joined in document order.
+// Gives the same tree as SimpleXmlElementParser.xmlElement() for a document that holds one root element.
+public class ParallelXmlParser {
+
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 64 * 1024;
+
+    private static final ParserFunc<Pair<String, List<Pair<String, String>>>> ELEMENT_START = ParserCompiler.compile(ParserOptimizer.optimize(xmlElementStart()));
+    private static final ParserFunc<String> CLOSE_TAG = ParserCompiler.compile(ParserOptimizer.optimize(xmlCloseTag()));
+    private static final ParserFunc<XmlElement> ELEMENT = ParserCompiler.compile(ParserOptimizer.optimize(xmlElement()));
+
+    private final ParserFunc<XmlElement> elementParser;
+    private final int minChunkSize;
+
+    public ParallelXmlParser() {
+        this(ELEMENT, DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    public ParallelXmlParser(final ParserFunc<XmlElement> elementParser, final int minChunkSize) {
+        this.elementParser = elementParser;
+        this.minChunkSize = Math.max(minChunkSize, 1);
+    }
+
+    public XmlElement parse(final CharSequence document) {
+        final var input = ParserInput.session(document);
+        input.setSymbols(new SymbolTable());
+        final var start = input.scan(0, CharClass.WHITESPACE);
+        final var res = elementParser.parse(input, start);
+        if (res.getStatus().equals(ParserStatus.Error)) {
+            throw new ParserException("invalid xml element, " + input.error(), Math.max(input.getFailurePosition(), start));
+        }
+        return checkEnd(input, res.getOutput(), res.getPosition());
+    }
+
+    // the whole document has to fit into one CharSequence: files of more than Integer.MAX_VALUE chars are rejected
+    // with an IllegalArgumentException. Unlike ImpEx lines, one root element cannot be split into independent windows
+    public XmlElement parse(final Path path, final Charset charset, final ForkJoinPool pool) throws IOException {
+        if (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)) {
+            return parse(MappedCharSequence.open(path), pool);
+        }
+        return parse(Files.readString(path, charset), pool);
+    }
+
+    public XmlElement parse(final CharSequence document, final ForkJoinPool pool) {
+        // one table for all chunks, so every task hands out the same name instances
+        final var symbols = new SymbolTable();
+        final var input = ParserInput.session(document);
+        input.setSymbols(symbols);
+        final var start = input.scan(0, CharClass.WHITESPACE);
+        final var head = ELEMENT_START.parse(input, start);
+        if (head.getStatus().equals(ParserStatus.Error) || !input.startsWith(">", head.getPosition())) {
+            return parse(document);
+        }
+        final var root = new XmlElement();
+        root.setName(head.getOutput().getLeft());
+        root.setAttributes(head.getOutput().getRight());
+
+        final var chunkSize = Math.max(minChunkSize, document.length() / (pool.getParallelism() * 4) + 1);
+        final var contentStart = head.getPosition() + 1;
+        final var boundaries = childBoundaries(document, contentStart, chunkSize);
+        if (boundaries == null || boundaries.length <= 2 || input.scan(contentStart, CharClass.WHITESPACE) != boundaries[0]) {
+            return parse(document);
+        }
+
+        final var tasks = new ArrayList<ForkJoinTask<List<XmlElement>>>(boundaries.length - 1);
+        for (int i = 0; i < boundaries.length - 1; i++) {
+            final var from = boundaries[i];
+            final var to = boundaries[i + 1];
+            tasks.add(pool.submit(() -> parseChildren(document, from, to, symbols)));
+        }
+
+        final var chunks = new ArrayList<List<XmlElement>>(tasks.size());
+        var size = 0;
+        for (final var task : tasks) {
+            final var children = task.join();
+            size += children.size();
+            chunks.add(children);
+        }
+        final var children = new ArrayList<XmlElement>(size);
+        chunks.forEach(children::addAll);
+        root.setChildren(children);
+
+        final var closeAt = boundaries[boundaries.length - 1];
+        final var close = CLOSE_TAG.parse(input, closeAt);
+        if (close.getStatus().equals(ParserStatus.Error) || !StringUtils.equals(close.getOutput(), root.getName())) {
+            throw new ParserException("expected </" + root.getName() + ">", closeAt);
+        }
+        return checkEnd(input, root, close.getPosition());
+    }
+
+    // starts of the top-level children of the element whose content begins at contentStart, one per chunk of at
+    // least chunkSize chars, followed by the start of the closing tag. Only nesting and quotes are looked at,
+    // the chunks are validated when they are parsed. null if no closing tag was found.
+    static int[] childBoundaries(final CharSequence document, final int contentStart, final int chunkSize) {
+        final var input = ParserInput.of(document);
+        final var boundaries = new ArrayList<Integer>();
+        var depth = 0;
+        var next = contentStart;
+        var position = contentStart;
+
+        while (true) {
+            final var open = input.indexOf('<', position);
+            if (open < 0) {
+                return null;
+            }
+            final var closing = input.startsWith("</", open);
+            if (closing && depth == 0) {
+                boundaries.add(open);
+                return boundaries.stream().mapToInt(Integer::intValue).toArray();
+            }
+            if (!closing && depth == 0 && open >= next) {
+                boundaries.add(open);
+                next = open + chunkSize;
+            }
+            final var end = tagEnd(input, open + 1);
+            if (end < 0) {
+                return null;
+            }
+            if (closing) {
+                depth--;
+            } else if (input.charAt(end - 1) != '/') {
+                depth++;
+            }
+            position = end + 1;
+        }
+    }
+
+    // index of the '>' that ends the tag, skipping quoted attribute values
+    private static int tagEnd(final ParserInput input, final int from) {
+        final var length = input.length();
+        for (int i = from; i < length; i++) {
+            final var c = input.charAt(i);
+            if (c == '>') {
+                return i;
+            }
+            if (c == '"') {
+                i = input.indexOf('"', i + 1);
+                if (i < 0) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private List<XmlElement> parseChildren(final CharSequence document, final int from, final int to, final SymbolTable symbols) {
+        final var input = ParserInput.session(document);
+        input.setSymbols(symbols);
+        final var children = new ArrayList<XmlElement>();
+
+        var position = from;
+        while (position < to) {
+            final var res = elementParser.parse(input, position);
+            if (res.getStatus().equals(ParserStatus.Error)) {
+                throw new ParserException("invalid xml element, " + input.error(), Math.max(input.getFailurePosition(), position));
+            }
+            children.add(res.getOutput());
+            position = res.getPosition();
+        }
+        if (position != to) {
+            throw new ParserException("element does not end where the next one starts", to);
+        }
+        return children;
+    }
+
+    private static XmlElement checkEnd(final ParserInput input, final XmlElement root, final int position) {
+        final var end = input.scan(position, CharClass.WHITESPACE);
+        if (end != input.length()) {
+            throw new ParserException("unexpected content after the root element", end);
+        }
+        return root;
+    }
+}
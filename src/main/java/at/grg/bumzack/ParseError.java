@@ -0,0 +1,43 @@
+package at.grg.bumzack;
+
+import java.util.List;
+
+// Where a parse failed and what the parsers that got furthest expected there. Holds the input by reference,
+// line and column are only computed when asked for.
+public final class ParseError {
+
+    private final ParserInput input;
+    private final int offset;
+    private final List<String> expected;
+
+    ParseError(final ParserInput input, final int offset, final List<String> expected) {
+        this.input = input;
+        this.offset = offset;
+        this.expected = expected;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public List<String> getExpected() {
+        return expected;
+    }
+
+    public int getLine() {
+        return input.lineIndex().line(offset);
+    }
+
+    public int getColumn() {
+        return input.lineIndex().column(offset);
+    }
+
+    @Override
+    public String toString() {
+        final var sb = new StringBuilder("line ").append(getLine()).append(", column ").append(getColumn());
+        if (!expected.isEmpty()) {
+            sb.append(": expected ").append(String.join(" or ", expected));
+        }
+        return sb.toString();
+    }
+}
@@ -1,309 +1,365 @@
 package at.grg.bumzack;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
-import java.text.CharacterIterator;
-import java.text.StringCharacterIterator;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.RandomAccess;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
-import static org.apache.commons.lang3.StringUtils.isAlphanumeric;
 
 public class Parser {
 
-    public static ParserFunc<String> letterA() {
-        return input -> {
-            if (Objects.equals(input.substring(0, 1), "a")) {
-                return new Result<>(input.substring(1), null, ParserStatus.OK, null);
+    private static final ParserFunc<Character> ANY_CHAR = (input, position) -> {
+        if (!input.isEnd(position)) {
+            return input.ok(input.charAt(position), position + 1);
+        }
+        return input.fail(position, "any char");
+    };
+
+    private static final ParserFunc<Void> END_OF_INPUT = (input, position) -> {
+        if (input.isEnd(position)) {
+            return input.ok(null, position);
+        }
+        return input.fail(position, "end of input");
+    };
+
+    private static final ParserFunc<String> IDENTIFIER = new ParserNode.Primitive<>("identifier", CharClass.LETTER, false) {
+        @Override
+        public Result<String> parse(final ParserInput input, final int position) {
+            if (input.isEnd(position) || !CharClass.LETTER.test(input.charAt(position))) {
+                return fail(input, position);
             }
-            return new Result<>(null, null, ParserStatus.Error, input);
-        };
-    }
-
-    public static ParserFunc<String> matchLiteral(final String expected) {
-        return input -> {
-            if (Objects.equals(input.substring(0, expected.length()), expected)) {
-                return new Result<>(input.substring(expected.length()), expected, ParserStatus.OK, null);
+            final var end = input.scan(position + 1, CharClass.IDENTIFIER_PART);
+            return input.ok(input.symbol(position, end), end);
+        }
+    };
+
+    private static final ParserFunc<Character> WHITE_SPACE = satisfy(CharClass.WHITESPACE);
+
+    private static final ParserFunc<List<Character>> SPACE0 = new ParserNode.Primitive<>("space0", CharClass.WHITESPACE, true) {
+        @Override
+        public Result<List<Character>> parse(final ParserInput input, final int position) {
+            final var end = input.scan(position, CharClass.WHITESPACE);
+            return input.ok(CharSpanList.of(input, position, end), end);
+        }
+    };
+
+    private static final ParserFunc<List<Character>> SPACE1 = new ParserNode.Primitive<>("space1", CharClass.WHITESPACE, false) {
+        @Override
+        public Result<List<Character>> parse(final ParserInput input, final int position) {
+            final var end = input.scan(position, CharClass.WHITESPACE);
+            if (end == position) {
+                return fail(input, position);
             }
-            return new Result<>(null, null, ParserStatus.Error, input);
-        };
-    }
+            return input.ok(CharSpanList.of(input, position, end), end);
+        }
+    };
 
-    public static ParserFunc<String> identifier() {
-        return input -> {
-            final var matchedSB = new StringBuilder();
+    // whitespace that nobody looks at, whitespaceWrap uses this instead of space0
+    private static final ParserFunc<Void> SKIP_SPACE0 = skipWhile(CharClass.WHITESPACE);
 
-            final var chars = new StringCharacterIterator(input);
+    private static final ParserFunc<Character> START_COMMENT = whitespaceWrap(satisfy(c -> c == '#'));
 
-            if (chars.current() != CharacterIterator.DONE && StringUtils.isAlpha(String.valueOf(chars.current()))) {
-                matchedSB.append(chars.current());
-            } else {
-                return new Result<>(null, null, ParserStatus.Error, input);
-            }
+    private static final ParserFunc<String> QUOTED_STRING = right(
+            matchLiteral("\""),
+            left(
+                    takeUntil('"'),
+                    matchLiteral("\"")
+            )
+    );
 
-            while (chars.next() != CharacterIterator.DONE) {
-                final var c = String.valueOf(chars.current());
-                if (isAlphanumeric(c) || StringUtils.equals("-", c)) {
-                    matchedSB.append(c);
-                } else {
-                    break;
-                }
+    public static ParserFunc<String> letterA() {
+        return (input, position) -> {
+            if (!input.isEnd(position) && input.charAt(position) == 'a') {
+                return input.ok(null, position + 1);
             }
+            return input.fail(position, "\"a\"");
+        };
+    }
 
-            final var matched = matchedSB.toString();
-            final var nextIdx = matched.length();
+    public static ParserFunc<String> matchLiteral(final String expected) {
+        return new ParserNode.Literal(expected);
+    }
 
-            return new Result<>(StringUtils.substring(input, nextIdx), matched, ParserStatus.OK, null);
-        };
+    public static <T> ParserFunc<T> oneOfLiterals(final Map<String, T> literals) {
+        return LiteralTrie.of(literals);
+    }
+
+    public static ParserFunc<String> identifier() {
+        return IDENTIFIER;
     }
 
     public static <A, B> ParserFunc<A> pairLeft(final ParserFunc<A> p1,
                                                 final ParserFunc<B> p2) {
-        return input -> {
-            final var res1 = p1.parse(input);
-            if (res1.getStatus().equals(ParserStatus.Error)) {
-                return new Result<>(null, null, ParserStatus.Error, input);
-            }
-            final var res2 = p2.parse(res1.getInput());
-            if (res2.getStatus().equals(ParserStatus.Error)) {
-                return new Result<>(null, null, ParserStatus.Error, res1.getInput());
-            }
-            return new Result<>(res2.getInput(), res1.getOutput(), ParserStatus.OK, null);
-        };
+        return new ParserNode.Sequence<>(p1, p2, ParserNode.Keep.LEFT);
     }
 
     public static <A, B> ParserFunc<B> pairRight(final ParserFunc<A> p1,
                                                  final ParserFunc<B> p2) {
-        return input -> {
-            final var res1 = p1.parse(input);
-            if (res1.getStatus().equals(ParserStatus.Error)) {
-                return new Result<>(null, null, ParserStatus.Error, input);
-            }
-            final var res2 = p2.parse(res1.getInput());
-            if (res2.getStatus().equals(ParserStatus.Error)) {
-                return new Result<>(null, null, ParserStatus.Error, res1.getInput());
-            }
-            return new Result<>(res2.getInput(), res2.getOutput(), ParserStatus.OK, null);
-        };
+        return new ParserNode.Sequence<>(p1, p2, ParserNode.Keep.RIGHT);
     }
 
     public static <A, B> ParserFunc<Pair<A, B>> pair(final ParserFunc<A> p1,
                                                      final ParserFunc<B> p2) {
-        return input -> {
-            final var res1 = p1.parse(input);
-            if (res1.getStatus().equals(ParserStatus.Error)) {
-                return new Result<>(null, null, ParserStatus.Error, input);
-            }
-            final var res2 = p2.parse(res1.getInput());
-            if (res2.getStatus().equals(ParserStatus.Error)) {
-                return new Result<>(null, null, ParserStatus.Error, res1.getInput());
-            }
-            return new Result<>(res2.getInput(), Pair.of(res1.getOutput(), res2.getOutput()), ParserStatus.OK, null);
-        };
+        return new ParserNode.Sequence<>(p1, p2, ParserNode.Keep.BOTH);
     }
 
 
     public static <A, B> ParserFunc<B> map(final ParserFunc<A> parser,
                                            final Function<A, B> mapFn) {
-        return input -> {
-            final var res1 = parser.parse(input);
-            if (res1.getStatus().equals(ParserStatus.Error)) {
-                return new Result<>(null, null, ParserStatus.Error, input);
-            }
-            return new Result<>(res1.getInput(),
-                    mapFn.apply(res1.getOutput()),
-                    ParserStatus.OK,
-                    null);
-        };
+        return new ParserNode.Mapping<>(parser, mapFn);
     }
 
     public static <A, B, T> ParserFunc<B> mapBiFunc(final ParserFunc<A> parser,
                                                     final BiFunction<T, A, B> mapBiFn,
                                                     final T param) {
-        return input -> {
-            final var res1 = parser.parse(input);
-            if (res1.getStatus().equals(ParserStatus.Error)) {
-                return new Result<>(null, null, ParserStatus.Error, input);
-            }
-            return new Result<>(res1.getInput(),
-                    mapBiFn.apply(param, res1.getOutput()),
-                    ParserStatus.OK,
-                    null);
-        };
+        return new ParserNode.Mapping<>(parser, a -> mapBiFn.apply(param, a));
     }
 
     public static <A, B> ParserFunc<B> right(final ParserFunc<A> p1,
                                              final ParserFunc<B> p2) {
-        return input -> pairRight(p1, p2).parse(input);
+        return pairRight(p1, p2);
     }
 
     public static <A, B> ParserFunc<A> left(final ParserFunc<A> p1,
                                             final ParserFunc<B> p2) {
-        return input -> pairLeft(p1, p2).parse(input);
+        return pairLeft(p1, p2);
     }
 
     public static <A> ParserFunc<List<A>> oneOrMore(final ParserFunc<A> parser) {
-        return inp -> {
-            final var result = new ArrayList<A>();
+        return new ParserNode.Many<>(parser, 1);
+    }
 
-            var input = inp;
+    public static <A> ParserFunc<List<A>> zeroOrMore(final ParserFunc<A> parser) {
+        return new ParserNode.Many<>(parser, 0);
+    }
 
-            if (StringUtils.isEmpty(input)) {
-                return new Result<>(null, null, ParserStatus.Error, input);
-            }
+    // zeroOrMore/oneOrMore without collecting the outputs
+    public static <A> ParserFunc<Void> skipMany(final ParserFunc<A> parser) {
+        return new ParserNode.Repeat<>(parser, 0, ParserNode.Repeat.Sink.SKIP, null, null);
+    }
+
+    public static <A> ParserFunc<Void> skipMany1(final ParserFunc<A> parser) {
+        return new ParserNode.Repeat<>(parser, 1, ParserNode.Repeat.Sink.SKIP, null, null);
+    }
+
+    public static <A> ParserFunc<Integer> countMany(final ParserFunc<A> parser) {
+        return new ParserNode.Repeat<>(parser, 0, ParserNode.Repeat.Sink.COUNT, null, null);
+    }
+
+    // zeroOrMore that feeds every output into an accumulator, e.g. a StringBuilder or a primitive buffer, instead of a list
+    public static <A, R> ParserFunc<R> fold(final ParserFunc<A> parser, final Supplier<R> init, final BiFunction<R, ? super A, R> step) {
+        return new ParserNode.Repeat<>(parser, 0, ParserNode.Repeat.Sink.FOLD, init, step);
+    }
 
-            final var res1 = parser.parse(input);
-            if (res1.getStatus().equals(ParserStatus.Error)) {
-                return new Result<>(null, null, ParserStatus.Error, input);
+
+    public static ParserFunc<Void> endOfInput() {
+        return END_OF_INPUT;
+    }
+
+    public static ParserFunc<Character> anyChar() {
+        return ANY_CHAR;
+    }
+
+    public static ParserFunc<Character> satisfy(final CharPredicate predicate) {
+        final var charClass = CharClass.of(predicate);
+        return new ParserNode.Primitive<>("satisfy", charClass, false) {
+            @Override
+            public String getExpectation() {
+                return null;
             }
-            result.add(res1.getOutput());
-            input = res1.getInput();
-
-            var res = parser.parse(input);
-
-            while (res.getStatus().equals(ParserStatus.OK)) {
-                result.add(res.getOutput());
-                input = res.getInput();
-                final var size = Optional.ofNullable(res.getInput())
-                        .map(String::length)
-                        .orElse(-1);
-
-                if (size > 0) {
-                    res = parser.parse(input);
-                } else {
-                    // abort loop
-                    res.setStatus(ParserStatus.Error);
+
+            @Override
+            public Result<Character> parse(final ParserInput input, final int position) {
+                if (!input.isEnd(position)) {
+                    final var c = input.charAt(position);
+                    if (charClass.test(c)) {
+                        return input.ok(c, position + 1);
+                    }
                 }
+                return input.fail(position);
             }
-            return new Result<>(input, result, ParserStatus.OK, null);
         };
     }
 
-    public static <A> ParserFunc<List<A>> zeroOrMore(final ParserFunc<A> parser) {
-        return inp -> {
-            final var result = new ArrayList<A>();
-
-            var input = inp;
+    public static ParserFunc<String> takeWhile(final CharPredicate predicate) {
+        final var charClass = CharClass.of(predicate);
+        return new ParserNode.Primitive<>("takeWhile", charClass, true) {
+            @Override
+            public Result<String> parse(final ParserInput input, final int position) {
+                final var end = input.scan(position, charClass);
+                return input.ok(input.slice(position, end), end);
+            }
+        };
+    }
 
-            if (StringUtils.isEmpty(input)) {
-                return new Result<>(input, result, ParserStatus.OK, null);
+    public static ParserFunc<String> takeWhile1(final CharPredicate predicate) {
+        final var charClass = CharClass.of(predicate);
+        return new ParserNode.Primitive<>("takeWhile1", charClass, false) {
+            @Override
+            public String getExpectation() {
+                return null;
             }
 
-            var res = parser.parse(input);
-
-            while (res.getStatus().equals(ParserStatus.OK)) {
-                result.add(res.getOutput());
-                input = res.getInput();
-                final var size = Optional.ofNullable(res.getInput())
-                        .filter(String.class::isInstance)
-                        .map(String.class::cast)
-                        .map(String::length)
-                        .orElse(-1);
-
-                if (size > 0) {
-                    res = parser.parse(input);
-                } else {
-                    // abort loop
-                    res.setStatus(ParserStatus.Error);
+            @Override
+            public Result<String> parse(final ParserInput input, final int position) {
+                final var end = input.scan(position, charClass);
+                if (end == position) {
+                    return input.fail(position);
                 }
+                return input.ok(input.slice(position, end), end);
             }
-            return new Result<>(input, result, ParserStatus.OK, null);
         };
     }
 
+    public static ParserFunc<Void> skipWhile(final CharPredicate predicate) {
+        final var charClass = CharClass.of(predicate);
+        return new ParserNode.Primitive<>("skipWhile", charClass, true) {
+            @Override
+            public Result<Void> parse(final ParserInput input, final int position) {
+                return input.ok(null, input.scan(position, charClass));
+            }
+        };
+    }
 
-    public static ParserFunc<Character> anyChar() {
-        return input -> {
-            final var chars = new StringCharacterIterator(input);
-            if (chars.current() != CharacterIterator.DONE) {
-                return new Result<>(StringUtils.substring(input, 1), chars.current(), ParserStatus.OK, input);
+    public static ParserFunc<String> takeUntil(final char delimiter) {
+        return (input, position) -> {
+            var end = input.indexOf(delimiter, position);
+            if (end < 0) {
+                end = input.length();
             }
-            return new Result<>(null, null, ParserStatus.Error, input);
+            return input.ok(input.slice(position, end), end);
         };
     }
 
-    public static <A> ParserFunc<A> pred(final ParserFunc<A> p1,
-                                         final Predicate<A> pred) {
-        return input -> {
-            final var res = p1.parse(input);
+    public static ParserFunc<String> takeUntilAny(final String delimiters) {
+        if (delimiters.length() == 1) {
+            return takeUntil(delimiters.charAt(0));
+        }
+        final var charClass = CharClass.noneOf(delimiters);
+        return (input, position) -> {
+            final var end = input.scan(position, charClass);
+            return input.ok(input.slice(position, end), end);
+        };
+    }
 
-            if (pred.test(res.getOutput())) {
-                return new Result<>(res.getInput(), res.getOutput(), ParserStatus.OK, input);
+    public static ParserFunc<String> scanTo(final String terminator) {
+        final var expectation = "\"" + terminator + "\"";
+        return (input, position) -> {
+            final var end = input.indexOf(terminator, position);
+            if (end < 0) {
+                return input.fail(position, expectation);
             }
-            return new Result<>(null, null, ParserStatus.Error, input);
+            return input.ok(input.slice(position, end), end + terminator.length());
         };
     }
 
+    public static <A> ParserFunc<A> pred(final ParserFunc<A> p1,
+                                         final Predicate<A> pred) {
+        return new ParserNode.Pred<>(p1, pred);
+    }
+
     public static ParserFunc<Character> whiteSpace() {
-        return input -> {
-            final ParserFunc<Character> p = pred(anyChar(), c -> StringUtils.isWhitespace(String.valueOf(c)));
-            return p.parse(input);
-        };
+        return WHITE_SPACE;
     }
 
     public static ParserFunc<Character> startComment() {
-        return input -> {
-            final ParserFunc<Character> p = whitespaceWrap(pred(anyChar(), c -> StringUtils.equals(String.valueOf(c), "#")));
-            return p.parse(input);
-        };
+        return START_COMMENT;
     }
 
     public static ParserFunc<List<Character>> space0() {
-        return input -> zeroOrMore(whiteSpace()).parse(input);
+        return SPACE0;
+    }
+
+    public static ParserFunc<Void> skipSpace0() {
+        return SKIP_SPACE0;
     }
 
     public static ParserFunc<List<Character>> space1() {
-        return input -> oneOrMore(whiteSpace()).parse(input);
+        return SPACE1;
     }
 
     public static ParserFunc<String> quotedString() {
-        return input -> {
-            final Function<List<Character>, String> mapFn = l -> l.stream().map(String::valueOf).collect(Collectors.joining());
-
-            return map(
-                    right(
-                            matchLiteral("\""),
-                            left(
-                                    zeroOrMore(pred(anyChar(), c -> !Objects.equals('\"', c))),
-                                    matchLiteral("\"")
-                            )
-                    ),
-                    mapFn
-            ).parse(input);
-        };
+        return QUOTED_STRING;
     }
 
 
     public static <A> ParserFunc<A> either(final ParserFunc<A> p1,
                                            final ParserFunc<A> p2) {
-        return input -> {
-            final var res1 = p1.parse(input);
-            if (res1.getStatus().equals(ParserStatus.OK)) {
-                return res1;
-            }
-            return p2.parse(input);
-        };
+        return new ParserNode.Either<>(p1, p2);
+    }
+
+    // like a chain of either, but looks at the next char first and only tries the alternatives that can start with it
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <A> ParserFunc<A> choice(final ParserFunc<A>... alternatives) {
+        return new ParserNode.Choice<>(List.of(alternatives));
     }
 
     public static <A, B> ParserFunc<B> and_then(final ParserFunc<A> parser,
                                                 final Function<A, ParserFunc<B>> fun) {
-        return input -> {
-            final var res = parser.parse(input);
+        return (input, position) -> {
+            final var res = parser.parse(input, position);
             if (res.getStatus().equals(ParserStatus.OK)) {
-                return fun.apply(res.getOutput()).parse(res.getInput());
+                final var next = res.getPosition();
+                return fun.apply(res.getOutput()).parse(input, next);
             }
-            return new Result<>(null, null, ParserStatus.Error, input);
+            return Result.failure();
         };
     }
 
     public static <A> ParserFunc<A> whitespaceWrap(final ParserFunc<A> parser) {
-        return input -> right(space0(), left(parser, space0())).parse(input);
+        return right(SKIP_SPACE0, left(parser, SKIP_SPACE0));
+    }
+
+    public static <A> ParserFunc<A> memo(final ParserFunc<A> parser) {
+        return new ParserNode.Memo<>(parser);
+    }
+
+    // a rule that shows up in ParserMetrics when metrics are enabled, the parser itself otherwise
+    public static <A> ParserFunc<A> named(final String name, final ParserFunc<A> parser) {
+        return ParserMetrics.ENABLED ? ParserMetrics.instrument(name, parser) : parser;
+    }
+
+    public static <A> ParserFunc<A> lazy(final Supplier<ParserFunc<A>> supplier) {
+        return new ParserNode.Lazy<>(supplier);
+    }
+
+    // whitespace runs are handed out as a view on the input instead of one boxed Character per char
+    private static final class CharSpanList extends AbstractList<Character> implements RandomAccess {
+        private final CharSequence chars;
+        private final int from;
+        private final int to;
+
+        private CharSpanList(final CharSequence chars, final int from, final int to) {
+            this.chars = chars;
+            this.from = from;
+            this.to = to;
+        }
+
+        // a view only on input that cannot change, a copy of the span otherwise
+        private static CharSpanList of(final ParserInput input, final int from, final int to) {
+            if (input.isImmutable()) {
+                return new CharSpanList(input.getChars(), from, to);
+            }
+            return new CharSpanList(input.slice(from, to), 0, to - from);
+        }
+
+        @Override
+        public Character get(final int index) {
+            Objects.checkIndex(index, to - from);
+            return chars.charAt(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
     }
 }
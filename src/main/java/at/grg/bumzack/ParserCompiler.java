@@ -0,0 +1,610 @@
+package at.grg.bumzack;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.objectweb.asm.Opcodes.*;
+
+// Compiles a ParserNode tree into one generated class. Every node becomes a static method and children are called
+// with invokestatic, so the JIT sees monomorphic call sites it can inline instead of one megamorphic lambda chain.
+// Leaves (primitives like identifier() and space0(), user lambdas, map functions) are called through a
+// static final field of the generated class, again one call site per use.
+public final class ParserCompiler {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final AtomicInteger CLASS_IDS = new AtomicInteger();
+    private static final Map<String, Object[]> PENDING_CONSTANTS = new ConcurrentHashMap<>();
+    // generated classes are never unloaded, so a tree is only compiled once
+    private static final Map<ParserFunc<?>, ParserFunc<?>> COMPILED = new IdentityHashMap<>();
+
+    private static final String INPUT = Type.getInternalName(ParserInput.class);
+    private static final String RESULT = Type.getInternalName(Result.class);
+    private static final String STATUS = Type.getInternalName(ParserStatus.class);
+    private static final String PARSER_FUNC = Type.getInternalName(ParserFunc.class);
+    private static final String MEMO_TABLE = Type.getInternalName(MemoTable.class);
+    private static final String PARSE_DESC = "(L" + INPUT + ";I)L" + RESULT + ";";
+    private static final String OK_DESC = "(Ljava/lang/Object;I)L" + RESULT + ";";
+
+    private ParserCompiler() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <OUTPUT> ParserFunc<OUTPUT> compile(final ParserFunc<OUTPUT> parser) {
+        if (!(parser instanceof ParserNode) || parser instanceof ParserNode.Primitive) {
+            return parser;
+        }
+        synchronized (COMPILED) {
+            final var compiled = COMPILED.get(parser);
+            if (compiled != null) {
+                return (ParserFunc<OUTPUT>) compiled;
+            }
+            final var fresh = define(parser);
+            COMPILED.put(parser, fresh);
+            return fresh;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <OUTPUT> ParserFunc<OUTPUT> define(final ParserFunc<OUTPUT> parser) {
+        final var className = ParserCompiler.class.getPackageName().replace('.', '/') + "/CompiledParser" + CLASS_IDS.incrementAndGet();
+        final var generator = new Generator(className);
+        final var bytes = generator.generate(parser);
+
+        final var binaryName = className.replace('/', '.');
+        PENDING_CONSTANTS.put(binaryName, generator.constants.toArray());
+        try {
+            final var type = LOOKUP.defineClass(bytes);
+            return (ParserFunc<OUTPUT>) type.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("could not compile " + parser, e);
+        } finally {
+            PENDING_CONSTANTS.remove(binaryName);
+        }
+    }
+
+    // called from the static initializer of a generated class
+    static Object[] constants(final String className) {
+        return PENDING_CONSTANTS.get(className);
+    }
+
+    private static final class Generator {
+        private final String className;
+        private final ClassWriter cw;
+        private final List<Object> constants = new ArrayList<>();
+        private final List<String> constantTypes = new ArrayList<>();
+        private final Map<ParserFunc<?>, String> methods = new IdentityHashMap<>();
+        private final Deque<ParserFunc<?>> pending = new ArrayDeque<>();
+
+        private Generator(final String className) {
+            this.className = className;
+            this.cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+                @Override
+                protected String getCommonSuperClass(final String type1, final String type2) {
+                    return "java/lang/Object";
+                }
+            };
+        }
+
+        private byte[] generate(final ParserFunc<?> root) {
+            cw.visit(V11, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, "java/lang/Object", new String[]{PARSER_FUNC});
+
+            final var rootMethod = method(root);
+            while (!pending.isEmpty()) {
+                final var node = pending.poll();
+                node(methods.get(node), node);
+            }
+
+            final var ctor = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+            ctor.visitCode();
+            ctor.visitVarInsn(ALOAD, 0);
+            ctor.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+            ctor.visitInsn(RETURN);
+            ctor.visitMaxs(0, 0);
+            ctor.visitEnd();
+
+            final var parse = cw.visitMethod(ACC_PUBLIC, "parse", PARSE_DESC, null, null);
+            parse.visitCode();
+            parse.visitVarInsn(ALOAD, 1);
+            parse.visitVarInsn(ILOAD, 2);
+            parse.visitMethodInsn(INVOKESTATIC, className, rootMethod, PARSE_DESC, false);
+            parse.visitInsn(ARETURN);
+            parse.visitMaxs(0, 0);
+            parse.visitEnd();
+
+            final var toString = cw.visitMethod(ACC_PUBLIC, "toString", "()Ljava/lang/String;", null, null);
+            toString.visitCode();
+            toString.visitLdcInsn("compiled(" + root + ")");
+            toString.visitInsn(ARETURN);
+            toString.visitMaxs(0, 0);
+            toString.visitEnd();
+
+            final var clinit = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+            clinit.visitCode();
+            clinit.visitLdcInsn(className.replace('/', '.'));
+            clinit.visitMethodInsn(INVOKESTATIC, Type.getInternalName(ParserCompiler.class), "constants", "(Ljava/lang/String;)[Ljava/lang/Object;", false);
+            clinit.visitVarInsn(ASTORE, 0);
+            for (int i = 0; i < constants.size(); i++) {
+                clinit.visitVarInsn(ALOAD, 0);
+                clinit.visitLdcInsn(i);
+                clinit.visitInsn(AALOAD);
+                clinit.visitTypeInsn(CHECKCAST, constantTypes.get(i));
+                clinit.visitFieldInsn(PUTSTATIC, className, "c" + i, "L" + constantTypes.get(i) + ";");
+            }
+            clinit.visitInsn(RETURN);
+            clinit.visitMaxs(0, 0);
+            clinit.visitEnd();
+
+            cw.visitEnd();
+            return cw.toByteArray();
+        }
+
+        private String method(final ParserFunc<?> parser) {
+            var node = parser;
+            while (node instanceof ParserNode.Lazy) {
+                node = ((ParserNode.Lazy<?>) node).get();
+            }
+            var name = methods.get(node);
+            if (name == null) {
+                name = "p" + methods.size();
+                methods.put(node, name);
+                pending.add(node);
+            }
+            if (node != parser) {
+                methods.put(parser, name);
+            }
+            return name;
+        }
+
+        private String constant(final Object value, final Class<?> type) {
+            final var name = "c" + constants.size();
+            constants.add(value);
+            constantTypes.add(Type.getInternalName(type));
+            cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, name, Type.getDescriptor(type), null, null).visitEnd();
+            return name;
+        }
+
+        private void node(final String name, final ParserFunc<?> node) {
+            final var mv = cw.visitMethod(ACC_PRIVATE | ACC_STATIC, name, PARSE_DESC, null, null);
+            mv.visitCode();
+            if (node instanceof ParserNode.Literal) {
+                literal(mv, (ParserNode.Literal) node);
+            } else if (node instanceof ParserNode.Sequence) {
+                sequence(mv, (ParserNode.Sequence<?, ?, ?>) node);
+            } else if (node instanceof ParserNode.Mapping) {
+                map(mv, (ParserNode.Mapping<?, ?>) node);
+            } else if (node instanceof ParserNode.Either) {
+                either(mv, (ParserNode.Either<?>) node);
+            } else if (node instanceof ParserNode.Choice) {
+                choice(mv, (ParserNode.Choice<?>) node);
+            } else if (node instanceof ParserNode.Many) {
+                many(mv, (ParserNode.Many<?>) node);
+            } else if (node instanceof ParserNode.Repeat) {
+                repeat(mv, (ParserNode.Repeat<?, ?>) node);
+            } else if (node instanceof ParserNode.Pred) {
+                pred(mv, (ParserNode.Pred<?>) node);
+            } else if (node instanceof ParserNode.Memo) {
+                memo(mv, (ParserNode.Memo<?>) node);
+            } else {
+                leaf(mv, node);
+            }
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+
+        private void leaf(final MethodVisitor mv, final ParserFunc<?> parser) {
+            mv.visitFieldInsn(GETSTATIC, className, constant(parser, ParserFunc.class), "L" + PARSER_FUNC + ";");
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitMethodInsn(INVOKEINTERFACE, PARSER_FUNC, "parse", PARSE_DESC, true);
+            mv.visitInsn(ARETURN);
+        }
+
+        private void literal(final MethodVisitor mv, final ParserNode.Literal node) {
+            final var failed = new Label();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitLdcInsn(node.getLiteral());
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "startsWith", "(Ljava/lang/String;I)Z", false);
+            mv.visitJumpInsn(IFEQ, failed);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitLdcInsn(node.getLiteral());
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitLdcInsn(node.getLiteral().length());
+            mv.visitInsn(IADD);
+            ok(mv);
+            mv.visitInsn(ARETURN);
+            mv.visitLabel(failed);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitLdcInsn("\"" + node.getLiteral() + "\"");
+            mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "fail", "(ILjava/lang/String;)L" + RESULT + ";", false);
+            mv.visitInsn(ARETURN);
+        }
+
+        private void sequence(final MethodVisitor mv, final ParserNode.Sequence<?, ?, ?> node) {
+            final var first = method(node.getFirst());
+            final var second = method(node.getSecond());
+
+            call(mv, first, 1);
+            mv.visitVarInsn(ASTORE, 2);
+            returnFailureIfError(mv, 2);
+            if (node.getKeep() != ParserNode.Keep.RIGHT) {
+                output(mv, 2);
+                mv.visitVarInsn(ASTORE, 3);
+            }
+            mv.visitVarInsn(ALOAD, 0);
+            position(mv, 2);
+            mv.visitMethodInsn(INVOKESTATIC, className, second, PARSE_DESC, false);
+            mv.visitVarInsn(ASTORE, 4);
+            returnFailureIfError(mv, 4);
+
+            switch (node.getKeep()) {
+                case LEFT:
+                    mv.visitVarInsn(ALOAD, 0);
+                    mv.visitVarInsn(ALOAD, 3);
+                    position(mv, 4);
+                    ok(mv);
+                    break;
+                case RIGHT:
+                    mv.visitVarInsn(ALOAD, 4);
+                    break;
+                default:
+                    mv.visitVarInsn(ALOAD, 0);
+                    mv.visitVarInsn(ALOAD, 3);
+                    output(mv, 4);
+                    mv.visitMethodInsn(INVOKESTATIC, "org/apache/commons/lang3/tuple/Pair", "of",
+                            "(Ljava/lang/Object;Ljava/lang/Object;)Lorg/apache/commons/lang3/tuple/Pair;", false);
+                    position(mv, 4);
+                    ok(mv);
+            }
+            mv.visitInsn(ARETURN);
+        }
+
+        private void map(final MethodVisitor mv, final ParserNode.Mapping<?, ?> node) {
+            final var child = method(node.getParser());
+            final var mapFn = constant(node.getMapFn(), Function.class);
+
+            call(mv, child, 1);
+            mv.visitVarInsn(ASTORE, 2);
+            returnFailureIfError(mv, 2);
+            position(mv, 2);
+            mv.visitVarInsn(ISTORE, 3);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETSTATIC, className, mapFn, "Ljava/util/function/Function;");
+            output(mv, 2);
+            mv.visitMethodInsn(INVOKEINTERFACE, "java/util/function/Function", "apply", "(Ljava/lang/Object;)Ljava/lang/Object;", true);
+            mv.visitVarInsn(ILOAD, 3);
+            ok(mv);
+            mv.visitInsn(ARETURN);
+        }
+
+        private void either(final MethodVisitor mv, final ParserNode.Either<?> node) {
+            final var first = method(node.getFirst());
+            final var second = method(node.getSecond());
+            final var failed = new Label();
+
+            call(mv, first, 1);
+            mv.visitVarInsn(ASTORE, 2);
+            mv.visitVarInsn(ALOAD, 2);
+            status(mv);
+            mv.visitFieldInsn(GETSTATIC, STATUS, "OK", "L" + STATUS + ";");
+            mv.visitJumpInsn(IF_ACMPNE, failed);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitInsn(ARETURN);
+            mv.visitLabel(failed);
+            call(mv, second, 1);
+            mv.visitInsn(ARETURN);
+        }
+
+        private void choice(final MethodVisitor mv, final ParserNode.Choice<?> node) {
+            final var alternatives = node.getAlternatives();
+            final var choiceType = Type.getInternalName(ParserNode.Choice.class);
+            final var choice = constant(node, ParserNode.Choice.class);
+            final var loop = new Label();
+            final var check = new Label();
+            final var next = new Label();
+            final var failed = new Label();
+            final var cases = new Label[alternatives.size()];
+
+            mv.visitFieldInsn(GETSTATIC, className, choice, "L" + choiceType + ";");
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitMethodInsn(INVOKEVIRTUAL, choiceType, "candidates", "(L" + INPUT + ";I)[I", false);
+            mv.visitVarInsn(ASTORE, 2);
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ISTORE, 3);
+
+            mv.visitLabel(loop);
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitInsn(ARRAYLENGTH);
+            mv.visitJumpInsn(IF_ICMPGE, failed);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitInsn(IALOAD);
+            for (int i = 0; i < cases.length; i++) {
+                cases[i] = new Label();
+            }
+            mv.visitTableSwitchInsn(0, cases.length - 1, next, cases);
+            for (int i = 0; i < cases.length; i++) {
+                mv.visitLabel(cases[i]);
+                call(mv, method(alternatives.get(i)), 1);
+                mv.visitVarInsn(ASTORE, 4);
+                mv.visitJumpInsn(GOTO, check);
+            }
+
+            mv.visitLabel(check);
+            mv.visitVarInsn(ALOAD, 4);
+            status(mv);
+            mv.visitFieldInsn(GETSTATIC, STATUS, "OK", "L" + STATUS + ";");
+            mv.visitJumpInsn(IF_ACMPNE, next);
+            mv.visitVarInsn(ALOAD, 4);
+            mv.visitInsn(ARETURN);
+
+            mv.visitLabel(next);
+            mv.visitIincInsn(3, 1);
+            mv.visitJumpInsn(GOTO, loop);
+
+            mv.visitLabel(failed);
+            mv.visitFieldInsn(GETSTATIC, className, choice, "L" + choiceType + ";");
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitMethodInsn(INVOKEVIRTUAL, choiceType, "fail", "(L" + INPUT + ";I[I)L" + RESULT + ";", false);
+            mv.visitInsn(ARETURN);
+        }
+
+        private void many(final MethodVisitor mv, final ParserNode.Many<?> node) {
+            final var child = method(node.getParser());
+            final var loop = new Label();
+            final var done = new Label();
+
+            mv.visitTypeInsn(NEW, "java/util/ArrayList");
+            mv.visitInsn(DUP);
+            mv.visitMethodInsn(INVOKESPECIAL, "java/util/ArrayList", "<init>", "()V", false);
+            mv.visitVarInsn(ASTORE, 2);
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitVarInsn(ISTORE, 3);
+
+            if (node.getMin() > 0) {
+                final var notEnd = new Label();
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(ILOAD, 1);
+                mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "isEnd", "(I)Z", false);
+                mv.visitJumpInsn(IFEQ, notEnd);
+                fail(mv, 1);
+                mv.visitLabel(notEnd);
+                call(mv, child, 1);
+                mv.visitVarInsn(ASTORE, 4);
+                returnFailureIfError(mv, 4);
+                add(mv);
+            }
+
+            mv.visitLabel(loop);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "isEnd", "(I)Z", false);
+            mv.visitJumpInsn(IFNE, done);
+            call(mv, child, 3);
+            mv.visitVarInsn(ASTORE, 4);
+            mv.visitVarInsn(ALOAD, 4);
+            status(mv);
+            mv.visitFieldInsn(GETSTATIC, STATUS, "Error", "L" + STATUS + ";");
+            mv.visitJumpInsn(IF_ACMPEQ, done);
+            position(mv, 4);
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitJumpInsn(IF_ICMPEQ, done);
+            add(mv);
+            mv.visitJumpInsn(GOTO, loop);
+
+            mv.visitLabel(done);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitVarInsn(ILOAD, 3);
+            ok(mv);
+            mv.visitInsn(ARETURN);
+        }
+
+        // list in local 2, position in local 3, child result in local 4
+        private void add(final MethodVisitor mv) {
+            mv.visitVarInsn(ALOAD, 2);
+            output(mv, 4);
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/util/ArrayList", "add", "(Ljava/lang/Object;)Z", false);
+            mv.visitInsn(POP);
+            position(mv, 4);
+            mv.visitVarInsn(ISTORE, 3);
+        }
+
+        // accumulator in local 2, position in local 3, child result in local 4, count in local 5
+        private void repeat(final MethodVisitor mv, final ParserNode.Repeat<?, ?> node) {
+            final var child = method(node.getParser());
+            final var sink = node.getSink();
+            final var step = sink == ParserNode.Repeat.Sink.FOLD ? constant(node.getStep(), BiFunction.class) : null;
+            final var loop = new Label();
+            final var done = new Label();
+
+            if (sink == ParserNode.Repeat.Sink.FOLD) {
+                mv.visitFieldInsn(GETSTATIC, className, constant(node.getInit(), Supplier.class), "Ljava/util/function/Supplier;");
+                mv.visitMethodInsn(INVOKEINTERFACE, "java/util/function/Supplier", "get", "()Ljava/lang/Object;", true);
+            } else {
+                mv.visitInsn(ACONST_NULL);
+            }
+            mv.visitVarInsn(ASTORE, 2);
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitVarInsn(ISTORE, 3);
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ISTORE, 5);
+
+            if (node.getMin() > 0) {
+                final var notEnd = new Label();
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(ILOAD, 1);
+                mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "isEnd", "(I)Z", false);
+                mv.visitJumpInsn(IFEQ, notEnd);
+                fail(mv, 1);
+                mv.visitLabel(notEnd);
+                call(mv, child, 1);
+                mv.visitVarInsn(ASTORE, 4);
+                returnFailureIfError(mv, 4);
+                step(mv, step);
+            }
+
+            mv.visitLabel(loop);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "isEnd", "(I)Z", false);
+            mv.visitJumpInsn(IFNE, done);
+            call(mv, child, 3);
+            mv.visitVarInsn(ASTORE, 4);
+            mv.visitVarInsn(ALOAD, 4);
+            status(mv);
+            mv.visitFieldInsn(GETSTATIC, STATUS, "Error", "L" + STATUS + ";");
+            mv.visitJumpInsn(IF_ACMPEQ, done);
+            position(mv, 4);
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitJumpInsn(IF_ICMPEQ, done);
+            step(mv, step);
+            mv.visitJumpInsn(GOTO, loop);
+
+            mv.visitLabel(done);
+            mv.visitVarInsn(ALOAD, 0);
+            if (sink == ParserNode.Repeat.Sink.COUNT) {
+                mv.visitVarInsn(ILOAD, 5);
+                mv.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false);
+            } else {
+                mv.visitVarInsn(ALOAD, 2);
+            }
+            mv.visitVarInsn(ILOAD, 3);
+            ok(mv);
+            mv.visitInsn(ARETURN);
+        }
+
+        private void step(final MethodVisitor mv, final String step) {
+            if (step != null) {
+                mv.visitFieldInsn(GETSTATIC, className, step, "Ljava/util/function/BiFunction;");
+                mv.visitVarInsn(ALOAD, 2);
+                output(mv, 4);
+                mv.visitMethodInsn(INVOKEINTERFACE, "java/util/function/BiFunction", "apply",
+                        "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", true);
+                mv.visitVarInsn(ASTORE, 2);
+            }
+            mv.visitIincInsn(5, 1);
+            position(mv, 4);
+            mv.visitVarInsn(ISTORE, 3);
+        }
+
+        private void pred(final MethodVisitor mv, final ParserNode.Pred<?> node) {
+            final var child = method(node.getParser());
+            final var predicate = constant(node.getPredicate(), Predicate.class);
+            final var rejected = new Label();
+
+            call(mv, child, 1);
+            mv.visitVarInsn(ASTORE, 2);
+            returnFailureIfError(mv, 2);
+            mv.visitFieldInsn(GETSTATIC, className, predicate, "Ljava/util/function/Predicate;");
+            output(mv, 2);
+            mv.visitMethodInsn(INVOKEINTERFACE, "java/util/function/Predicate", "test", "(Ljava/lang/Object;)Z", true);
+            mv.visitJumpInsn(IFEQ, rejected);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitInsn(ARETURN);
+            mv.visitLabel(rejected);
+            fail(mv, 1);
+        }
+
+        private void memo(final MethodVisitor mv, final ParserNode.Memo<?> node) {
+            final var child = method(node.getParser());
+            final var withMemo = new Label();
+            final var miss = new Label();
+
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "getMemo", "()L" + MEMO_TABLE + ";", false);
+            mv.visitVarInsn(ASTORE, 2);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitJumpInsn(IFNONNULL, withMemo);
+            call(mv, child, 1);
+            mv.visitInsn(ARETURN);
+
+            mv.visitLabel(withMemo);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitLdcInsn(node.getId());
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitMethodInsn(INVOKEVIRTUAL, MEMO_TABLE, "get", "(II)L" + RESULT + ";", false);
+            mv.visitVarInsn(ASTORE, 3);
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitJumpInsn(IFNULL, miss);
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitInsn(ARETURN);
+
+            mv.visitLabel(miss);
+            mv.visitVarInsn(ALOAD, 0);
+            call(mv, child, 1);
+            mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "keep", "(L" + RESULT + ";)L" + RESULT + ";", false);
+            mv.visitVarInsn(ASTORE, 3);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitLdcInsn(node.getId());
+            mv.visitVarInsn(ILOAD, 1);
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitMethodInsn(INVOKEVIRTUAL, MEMO_TABLE, "put", "(IIL" + RESULT + ";)V", false);
+            mv.visitVarInsn(ALOAD, 3);
+            mv.visitInsn(ARETURN);
+        }
+
+        private void call(final MethodVisitor mv, final String method, final int positionLocal) {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ILOAD, positionLocal);
+            mv.visitMethodInsn(INVOKESTATIC, className, method, PARSE_DESC, false);
+        }
+
+        private void returnFailureIfError(final MethodVisitor mv, final int resultLocal) {
+            final var ok = new Label();
+            mv.visitVarInsn(ALOAD, resultLocal);
+            status(mv);
+            mv.visitFieldInsn(GETSTATIC, STATUS, "Error", "L" + STATUS + ";");
+            mv.visitJumpInsn(IF_ACMPNE, ok);
+            mv.visitMethodInsn(INVOKESTATIC, RESULT, "failure", "()L" + RESULT + ";", false);
+            mv.visitInsn(ARETURN);
+            mv.visitLabel(ok);
+        }
+
+        private void fail(final MethodVisitor mv, final int positionLocal) {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ILOAD, positionLocal);
+            mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "fail", "(I)L" + RESULT + ";", false);
+            mv.visitInsn(ARETURN);
+        }
+
+        private void ok(final MethodVisitor mv) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, INPUT, "ok", OK_DESC, false);
+        }
+
+        private void status(final MethodVisitor mv) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, RESULT, "getStatus", "()L" + STATUS + ";", false);
+        }
+
+        private void output(final MethodVisitor mv, final int resultLocal) {
+            mv.visitVarInsn(ALOAD, resultLocal);
+            mv.visitMethodInsn(INVOKEVIRTUAL, RESULT, "getOutput", "()Ljava/lang/Object;", false);
+        }
+
+        private void position(final MethodVisitor mv, final int resultLocal) {
+            mv.visitVarInsn(ALOAD, resultLocal);
+            mv.visitMethodInsn(INVOKEVIRTUAL, RESULT, "getPosition", "()I", false);
+        }
+    }
+}
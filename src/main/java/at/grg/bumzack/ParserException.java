@@ -0,0 +1,17 @@
+package at.grg.bumzack;
+
+public class ParserException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long position;
+
+    public ParserException(final String message, final long position) {
+        super(message + " at offset " + position);
+        this.position = position;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+}
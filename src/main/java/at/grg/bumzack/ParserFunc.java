@@ -3,6 +3,19 @@ package at.grg.bumzack;
 @FunctionalInterface
 public interface ParserFunc<OUTPUT> {
 
-    Result<OUTPUT> parse(final String input);
+    Result<OUTPUT> parse(final ParserInput input, final int position);
+
+    default Result<OUTPUT> parse(final String input) {
+        final var source = new ParserInput(input);
+        final var res = parse(source, 0);
+        if (res.getStatus().equals(ParserStatus.OK)) {
+            return new Result<>(source.rest(res.getPosition()), res.getOutput(), ParserStatus.OK, null, res.getPosition());
+        }
+        // only a bounded snippet of the input after the failure, the full picture is in the ParseError
+        final var error = source.error();
+        final var failed = new Result<OUTPUT>(null, null, ParserStatus.Error, source.snippet(error.getOffset(), ParserInput.ERROR_CONTEXT), error.getOffset());
+        failed.setError(error);
+        return failed;
+    }
 
 }
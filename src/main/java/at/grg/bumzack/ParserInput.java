@@ -0,0 +1,279 @@
+package at.grg.bumzack;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+public final class ParserInput implements CharSequence {
+
+    static final int MAX_EXPECTED = 16;
+    // chars of the remaining input that a failed Result carries in its errorMsg
+    static final int ERROR_CONTEXT = 80;
+
+    private final CharSequence chars;
+    private final MemoTable memo;
+    private final Result<Object> slot;
+    private int failurePosition = -1;
+    // what the parsers that failed at failurePosition were looking for, bounded so a failure costs O(1) memory
+    private final String[] expected = new String[MAX_EXPECTED];
+    private int expectedCount;
+    private LineIndex lineIndex;
+    private boolean hitEnd;
+    private SymbolTable symbols;
+
+    public ParserInput(final CharSequence chars) {
+        this(chars, null);
+    }
+
+    public ParserInput(final CharSequence chars, final MemoTable memo) {
+        this(chars, memo, false);
+    }
+
+    private ParserInput(final CharSequence chars, final MemoTable memo, final boolean reuseResults) {
+        this.chars = Objects.requireNonNull(chars);
+        this.memo = memo;
+        this.slot = reuseResults ? Result.ok(null, 0) : null;
+    }
+
+    // single threaded parse session: every successful combinator writes into one shared result slot instead of
+    // allocating a new Result. A result is only valid until the next parse call on this input, use keep() to hold on to it.
+    public static ParserInput session(final CharSequence chars) {
+        return new ParserInput(chars, null, true);
+    }
+
+    public static ParserInput session(final CharSequence chars, final MemoTable memo) {
+        return new ParserInput(chars, memo, true);
+    }
+
+    public static ParserInput of(final CharSequence chars) {
+        if (chars instanceof ParserInput) {
+            return (ParserInput) chars;
+        }
+        return new ParserInput(chars);
+    }
+
+    public CharSequence getChars() {
+        return chars;
+    }
+
+    // true if the chars cannot change under a value that keeps pointing into them. Buffers like the ones of
+    // PushParser and StreamingXmlParser are reused, so views on them have to copy instead
+    public boolean isImmutable() {
+        return chars instanceof String || chars instanceof MappedCharSequence;
+    }
+
+    public MemoTable getMemo() {
+        return memo;
+    }
+
+    public boolean isSession() {
+        return slot != null;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    // names that parsers read through symbol() are interned in this table, null turns interning off
+    public void setSymbols(final SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <OUTPUT> Result<OUTPUT> ok(final OUTPUT output, final int position) {
+        if (slot == null) {
+            return Result.ok(output, position);
+        }
+        slot.setOutput(output);
+        slot.setPosition(position);
+        return (Result<OUTPUT>) slot;
+    }
+
+    public <OUTPUT> Result<OUTPUT> keep(final Result<OUTPUT> result) {
+        if (result == slot) {
+            return Result.ok(result.getOutput(), result.getPosition());
+        }
+        return result;
+    }
+
+    public <OUTPUT> Result<OUTPUT> fail(final int position) {
+        if (position > failurePosition) {
+            failurePosition = position;
+            expectedCount = 0;
+        }
+        return Result.failure();
+    }
+
+    // like fail(position), and remembers what was expected there. Expectations of failures at the same furthest
+    // position are merged, a failure further ahead replaces them.
+    public <OUTPUT> Result<OUTPUT> fail(final int position, final String expectation) {
+        if (position > failurePosition) {
+            failurePosition = position;
+            expectedCount = 0;
+        }
+        if (position == failurePosition && expectedCount < MAX_EXPECTED) {
+            for (int i = 0; i < expectedCount; i++) {
+                if (expected[i].equals(expectation)) {
+                    return Result.failure();
+                }
+            }
+            expected[expectedCount++] = expectation;
+        }
+        return Result.failure();
+    }
+
+    public int getFailurePosition() {
+        return failurePosition;
+    }
+
+    public List<String> getExpected() {
+        return List.of(Arrays.copyOf(expected, expectedCount));
+    }
+
+    public void clearFailure() {
+        failurePosition = -1;
+        expectedCount = 0;
+    }
+
+    // the furthest failure so far, with line and column resolved on demand
+    public ParseError error() {
+        return new ParseError(this, Math.max(failurePosition, 0), getExpected());
+    }
+
+    public LineIndex lineIndex() {
+        if (lineIndex == null) {
+            lineIndex = new LineIndex(chars);
+        }
+        return lineIndex;
+    }
+
+    public boolean hitEnd() {
+        return hitEnd;
+    }
+
+    public void clearHitEnd() {
+        hitEnd = false;
+    }
+
+    public boolean isEnd(final int position) {
+        if (position >= chars.length()) {
+            hitEnd = true;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean startsWith(final String expected, final int position) {
+        final var length = expected.length();
+        if (position < 0) {
+            return false;
+        }
+        if (position + length > chars.length()) {
+            hitEnd = true;
+            return false;
+        }
+        if (chars instanceof String) {
+            return ((String) chars).startsWith(expected, position);
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars.charAt(position + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int scan(final int position, final CharPredicate predicate) {
+        final var length = chars.length();
+        var end = position;
+        while (end < length && predicate.test(chars.charAt(end))) {
+            end++;
+        }
+        if (end == length) {
+            hitEnd = true;
+        }
+        return end;
+    }
+
+    public int indexOf(final char c, final int position) {
+        if (chars instanceof String) {
+            final var found = ((String) chars).indexOf(c, position);
+            if (found < 0) {
+                hitEnd = true;
+            }
+            return found;
+        }
+        final var length = chars.length();
+        for (int i = position; i < length; i++) {
+            if (chars.charAt(i) == c) {
+                return i;
+            }
+        }
+        hitEnd = true;
+        return -1;
+    }
+
+    public int indexOf(final String s, final int position) {
+        if (chars instanceof String) {
+            final var found = ((String) chars).indexOf(s, position);
+            if (found < 0) {
+                hitEnd = true;
+            }
+            return found;
+        }
+        final var first = s.charAt(0);
+        var from = position;
+        while (true) {
+            final var candidate = indexOf(first, from);
+            if (candidate < 0) {
+                return -1;
+            }
+            if (startsWith(s, candidate)) {
+                return candidate;
+            }
+            from = candidate + 1;
+        }
+    }
+
+    public String slice(final int from, final int to) {
+        return chars.subSequence(from, to).toString();
+    }
+
+    // like slice, but the canonical String from the symbol table if there is one
+    public String symbol(final int from, final int to) {
+        if (symbols == null) {
+            return slice(from, to);
+        }
+        return symbols.intern(chars, from, to);
+    }
+
+    public String rest(final int position) {
+        return slice(Math.min(position, chars.length()), chars.length());
+    }
+
+    // at most length chars from position on
+    public String snippet(final int position, final int length) {
+        final var from = Math.min(position, chars.length());
+        return slice(from, Math.min(chars.length(), from + length));
+    }
+
+    @Override
+    public int length() {
+        return chars.length();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        return chars.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return chars.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return chars.toString();
+    }
+}
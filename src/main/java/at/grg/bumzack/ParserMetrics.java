@@ -0,0 +1,225 @@
+package at.grg.bumzack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-rule counters for named parsers. Parser.named only wraps a parser when the JVM was started with
+// -Dat.grg.bumzack.metrics=true; otherwise it returns the parser itself and nothing is measured.
+// Times are inclusive per rule; foldedStacks() gives self times per call path for flame graph tools.
+public final class ParserMetrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("at.grg.bumzack.metrics");
+
+    private static final Map<String, Counters> RULES = new ConcurrentHashMap<>();
+    private static final Frame ROOT = new Frame("root");
+    private static final ThreadLocal<Frame[]> CURRENT = ThreadLocal.withInitial(() -> new Frame[]{ROOT});
+
+    private ParserMetrics() {
+    }
+
+    // always instruments, independent of ENABLED
+    public static <A> ParserFunc<A> instrument(final String name, final ParserFunc<A> parser) {
+        return new Instrumented<>(name, parser, RULES.computeIfAbsent(name, Counters::new));
+    }
+
+    public static List<RuleStats> snapshot() {
+        final var stats = new ArrayList<RuleStats>();
+        for (final var counters : RULES.values()) {
+            stats.add(counters.snapshot());
+        }
+        stats.sort((a, b) -> Long.compare(b.getNanos(), a.getNanos()));
+        return stats;
+    }
+
+    public static void reset() {
+        for (final var counters : RULES.values()) {
+            counters.reset();
+        }
+        ROOT.children.clear();
+    }
+
+    // one line per call path: "root;rule;rule <self nanos>", the input format of flamegraph.pl and speedscope
+    public static String foldedStacks() {
+        final var lines = new TreeMap<String, Long>();
+        for (final var child : ROOT.children.values()) {
+            fold(child, ROOT.name, lines);
+        }
+        final var sb = new StringBuilder();
+        lines.forEach((stack, nanos) -> sb.append(stack).append(' ').append(nanos).append('\n'));
+        return sb.toString();
+    }
+
+    private static void fold(final Frame frame, final String prefix, final Map<String, Long> lines) {
+        final var stack = prefix + ";" + frame.name;
+        var self = frame.nanos.sum();
+        for (final var child : frame.children.values()) {
+            self -= child.nanos.sum();
+            fold(child, stack, lines);
+        }
+        if (self > 0) {
+            lines.put(stack, self);
+        }
+    }
+
+    private static final class Instrumented<A> implements ParserFunc<A> {
+        private final String name;
+        private final ParserFunc<A> parser;
+        private final Counters counters;
+
+        private Instrumented(final String name, final ParserFunc<A> parser, final Counters counters) {
+            this.name = name;
+            this.parser = parser;
+            this.counters = counters;
+        }
+
+        @Override
+        public Result<A> parse(final ParserInput input, final int position) {
+            final var current = CURRENT.get();
+            final var parent = current[0];
+            final var frame = parent.child(name);
+            current[0] = frame;
+
+            final var furthest = input.getFailurePosition();
+            final var started = System.nanoTime();
+            final Result<A> res;
+            try {
+                res = parser.parse(input, position);
+            } finally {
+                current[0] = parent;
+            }
+            final var elapsed = System.nanoTime() - started;
+
+            frame.nanos.add(elapsed);
+            counters.invocations.increment();
+            counters.nanos.add(elapsed);
+            if (res.getStatus().equals(ParserStatus.OK)) {
+                counters.successes.increment();
+                counters.consumed.add(res.getPosition() - position);
+            } else {
+                counters.failures.increment();
+                // chars the failed attempt looked at before the caller went back to position
+                final var failedAt = input.getFailurePosition();
+                if (failedAt > furthest && failedAt > position) {
+                    counters.backtracked.add(failedAt - position);
+                }
+            }
+            return res;
+        }
+
+        @Override
+        public String toString() {
+            return name + "(" + parser + ")";
+        }
+    }
+
+    private static final class Counters {
+        private final String name;
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder consumed = new LongAdder();
+        private final LongAdder backtracked = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private Counters(final String name) {
+            this.name = name;
+        }
+
+        private RuleStats snapshot() {
+            return new RuleStats(name, invocations.sum(), successes.sum(), failures.sum(), consumed.sum(), backtracked.sum(), nanos.sum());
+        }
+
+        private void reset() {
+            invocations.reset();
+            successes.reset();
+            failures.reset();
+            consumed.reset();
+            backtracked.reset();
+            nanos.reset();
+        }
+    }
+
+    // a node of the call tree, shared by all threads
+    private static final class Frame {
+        private final String name;
+        private final Map<String, Frame> children = new ConcurrentHashMap<>();
+        private final LongAdder nanos = new LongAdder();
+
+        private Frame(final String name) {
+            this.name = name;
+        }
+
+        private Frame child(final String childName) {
+            final var child = children.get(childName);
+            return child != null ? child : children.computeIfAbsent(childName, Frame::new);
+        }
+    }
+
+    public static final class RuleStats {
+        private final String name;
+        private final long invocations;
+        private final long successes;
+        private final long failures;
+        private final long consumed;
+        private final long backtracked;
+        private final long nanos;
+
+        RuleStats(final String name, final long invocations, final long successes, final long failures,
+                  final long consumed, final long backtracked, final long nanos) {
+            this.name = name;
+            this.invocations = invocations;
+            this.successes = successes;
+            this.failures = failures;
+            this.consumed = consumed;
+            this.backtracked = backtracked;
+            this.nanos = nanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getSuccesses() {
+            return successes;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        // chars consumed by successful invocations
+        public long getConsumed() {
+            return consumed;
+        }
+
+        // chars looked at by failed invocations before their caller backtracked
+        public long getBacktracked() {
+            return backtracked;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "RuleStats{" +
+                    "name='" + name + '\'' +
+                    ", invocations=" + invocations +
+                    ", successes=" + successes +
+                    ", failures=" + failures +
+                    ", consumed=" + consumed +
+                    ", backtracked=" + backtracked +
+                    ", nanos=" + nanos +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,553 @@
+package at.grg.bumzack;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// The structural combinators as an inspectable tree instead of opaque lambdas.
+// Every node parses on its own; ParserCompiler turns a whole tree into one generated class.
+public abstract class ParserNode<OUTPUT> implements ParserFunc<OUTPUT> {
+
+    private static final int ASCII_SIZE = 128;
+
+    private ParserNode() {
+    }
+
+    public enum Keep {
+        LEFT, RIGHT, BOTH
+    }
+
+    public static final class Literal extends ParserNode<String> {
+        private final String literal;
+        private final String expectation;
+
+        Literal(final String literal) {
+            this.literal = literal;
+            this.expectation = "\"" + literal + "\"";
+        }
+
+        public String getLiteral() {
+            return literal;
+        }
+
+        @Override
+        public Result<String> parse(final ParserInput input, final int position) {
+            if (input.startsWith(literal, position)) {
+                return input.ok(literal, position + literal.length());
+            }
+            return input.fail(position, expectation);
+        }
+
+        @Override
+        public String toString() {
+            return "literal(\"" + literal + "\")";
+        }
+    }
+
+    public static final class Sequence<A, B, OUTPUT> extends ParserNode<OUTPUT> {
+        private final ParserFunc<A> first;
+        private final ParserFunc<B> second;
+        private final Keep keep;
+
+        Sequence(final ParserFunc<A> first, final ParserFunc<B> second, final Keep keep) {
+            this.first = first;
+            this.second = second;
+            this.keep = keep;
+        }
+
+        public ParserFunc<A> getFirst() {
+            return first;
+        }
+
+        public ParserFunc<B> getSecond() {
+            return second;
+        }
+
+        public Keep getKeep() {
+            return keep;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Result<OUTPUT> parse(final ParserInput input, final int position) {
+            final var res1 = first.parse(input, position);
+            if (res1.getStatus().equals(ParserStatus.Error)) {
+                return Result.failure();
+            }
+            final var output = res1.getOutput();
+            final var res2 = second.parse(input, res1.getPosition());
+            if (res2.getStatus().equals(ParserStatus.Error)) {
+                return Result.failure();
+            }
+            switch (keep) {
+                case LEFT:
+                    return input.ok((OUTPUT) output, res2.getPosition());
+                case RIGHT:
+                    return (Result<OUTPUT>) res2;
+                default:
+                    return input.ok((OUTPUT) Pair.of(output, res2.getOutput()), res2.getPosition());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return keep.name().toLowerCase() + "(" + first + ", " + second + ")";
+        }
+    }
+
+    public static final class Mapping<A, B> extends ParserNode<B> {
+        private final ParserFunc<A> parser;
+        private final Function<A, B> mapFn;
+
+        Mapping(final ParserFunc<A> parser, final Function<A, B> mapFn) {
+            this.parser = parser;
+            this.mapFn = mapFn;
+        }
+
+        public ParserFunc<A> getParser() {
+            return parser;
+        }
+
+        public Function<A, B> getMapFn() {
+            return mapFn;
+        }
+
+        @Override
+        public Result<B> parse(final ParserInput input, final int position) {
+            final var res1 = parser.parse(input, position);
+            if (res1.getStatus().equals(ParserStatus.Error)) {
+                return Result.failure();
+            }
+            final var next = res1.getPosition();
+            return input.ok(mapFn.apply(res1.getOutput()), next);
+        }
+
+        @Override
+        public String toString() {
+            return "map(" + parser + ")";
+        }
+    }
+
+    public static final class Either<A> extends ParserNode<A> {
+        private final ParserFunc<A> first;
+        private final ParserFunc<A> second;
+
+        Either(final ParserFunc<A> first, final ParserFunc<A> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        public ParserFunc<A> getFirst() {
+            return first;
+        }
+
+        public ParserFunc<A> getSecond() {
+            return second;
+        }
+
+        @Override
+        public Result<A> parse(final ParserInput input, final int position) {
+            final var res1 = first.parse(input, position);
+            if (res1.getStatus().equals(ParserStatus.OK)) {
+                return res1;
+            }
+            return second.parse(input, position);
+        }
+
+        @Override
+        public String toString() {
+            return "either(" + first + ", " + second + ")";
+        }
+    }
+
+    public static final class Many<A> extends ParserNode<List<A>> {
+        private final ParserFunc<A> parser;
+        private final int min;
+
+        Many(final ParserFunc<A> parser, final int min) {
+            this.parser = parser;
+            this.min = min;
+        }
+
+        public ParserFunc<A> getParser() {
+            return parser;
+        }
+
+        public int getMin() {
+            return min;
+        }
+
+        @Override
+        public Result<List<A>> parse(final ParserInput input, final int start) {
+            final var result = new ArrayList<A>();
+            var position = start;
+
+            if (min > 0) {
+                if (input.isEnd(start)) {
+                    return input.fail(start);
+                }
+                final var res1 = parser.parse(input, start);
+                if (res1.getStatus().equals(ParserStatus.Error)) {
+                    return Result.failure();
+                }
+                result.add(res1.getOutput());
+                position = res1.getPosition();
+            }
+
+            while (!input.isEnd(position)) {
+                final var res = parser.parse(input, position);
+                if (res.getStatus().equals(ParserStatus.Error) || res.getPosition() == position) {
+                    break;
+                }
+                result.add(res.getOutput());
+                position = res.getPosition();
+            }
+            return input.ok(result, position);
+        }
+
+        @Override
+        public String toString() {
+            return (min > 0 ? "oneOrMore(" : "zeroOrMore(") + parser + ")";
+        }
+    }
+
+    // repetition without a list: the outputs are dropped, only counted, or folded into an accumulator
+    public static final class Repeat<A, R> extends ParserNode<R> {
+        public enum Sink {
+            SKIP, COUNT, FOLD
+        }
+
+        private final ParserFunc<A> parser;
+        private final int min;
+        private final Sink sink;
+        private final Supplier<R> init;
+        private final BiFunction<R, ? super A, R> step;
+
+        Repeat(final ParserFunc<A> parser, final int min, final Sink sink, final Supplier<R> init, final BiFunction<R, ? super A, R> step) {
+            this.parser = parser;
+            this.min = min;
+            this.sink = sink;
+            this.init = init;
+            this.step = step;
+        }
+
+        public ParserFunc<A> getParser() {
+            return parser;
+        }
+
+        public int getMin() {
+            return min;
+        }
+
+        public Sink getSink() {
+            return sink;
+        }
+
+        public Supplier<R> getInit() {
+            return init;
+        }
+
+        public BiFunction<R, ? super A, R> getStep() {
+            return step;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Result<R> parse(final ParserInput input, final int start) {
+            var acc = sink == Sink.FOLD ? init.get() : null;
+            var count = 0;
+            var position = start;
+
+            if (min > 0) {
+                if (input.isEnd(start)) {
+                    return input.fail(start);
+                }
+                final var res1 = parser.parse(input, start);
+                if (res1.getStatus().equals(ParserStatus.Error)) {
+                    return Result.failure();
+                }
+                if (sink == Sink.FOLD) {
+                    acc = step.apply(acc, res1.getOutput());
+                }
+                count++;
+                position = res1.getPosition();
+            }
+
+            while (!input.isEnd(position)) {
+                final var res = parser.parse(input, position);
+                if (res.getStatus().equals(ParserStatus.Error) || res.getPosition() == position) {
+                    break;
+                }
+                if (sink == Sink.FOLD) {
+                    acc = step.apply(acc, res.getOutput());
+                }
+                count++;
+                position = res.getPosition();
+            }
+            if (sink == Sink.COUNT) {
+                return input.ok((R) Integer.valueOf(count), position);
+            }
+            return input.ok(acc, position);
+        }
+
+        @Override
+        public String toString() {
+            switch (sink) {
+                case SKIP:
+                    return (min > 0 ? "skipMany1(" : "skipMany(") + parser + ")";
+                case COUNT:
+                    return "countMany(" + parser + ")";
+                default:
+                    return "fold(" + parser + ")";
+            }
+        }
+    }
+
+    public static final class Pred<A> extends ParserNode<A> {
+        private final ParserFunc<A> parser;
+        private final Predicate<A> predicate;
+
+        Pred(final ParserFunc<A> parser, final Predicate<A> predicate) {
+            this.parser = parser;
+            this.predicate = predicate;
+        }
+
+        public ParserFunc<A> getParser() {
+            return parser;
+        }
+
+        public Predicate<A> getPredicate() {
+            return predicate;
+        }
+
+        @Override
+        public Result<A> parse(final ParserInput input, final int position) {
+            final var res = parser.parse(input, position);
+            if (res.getStatus().equals(ParserStatus.Error)) {
+                return Result.failure();
+            }
+            if (predicate.test(res.getOutput())) {
+                return res;
+            }
+            return input.fail(position);
+        }
+
+        @Override
+        public String toString() {
+            return "pred(" + parser + ")";
+        }
+    }
+
+    public static final class Memo<A> extends ParserNode<A> {
+        private final int id;
+        private final ParserFunc<A> parser;
+
+        Memo(final ParserFunc<A> parser) {
+            this.id = MemoTable.nextParserId();
+            this.parser = parser;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public ParserFunc<A> getParser() {
+            return parser;
+        }
+
+        @Override
+        public Result<A> parse(final ParserInput input, final int position) {
+            final var memo = input.getMemo();
+            if (memo == null) {
+                return parser.parse(input, position);
+            }
+            final Result<A> cached = memo.get(id, position);
+            if (cached != null) {
+                return cached;
+            }
+            final var res = input.keep(parser.parse(input, position));
+            memo.put(id, position, res);
+            return res;
+        }
+
+        @Override
+        public String toString() {
+            return "memo(" + parser + ")";
+        }
+    }
+
+    public static final class Lazy<A> extends ParserNode<A> {
+        private final Supplier<ParserFunc<A>> supplier;
+        private ParserFunc<A> parser;
+
+        Lazy(final Supplier<ParserFunc<A>> supplier) {
+            this.supplier = supplier;
+        }
+
+        public ParserFunc<A> get() {
+            var p = parser;
+            if (p == null) {
+                p = Objects.requireNonNull(supplier.get());
+                parser = p;
+            }
+            return p;
+        }
+
+        @Override
+        public Result<A> parse(final ParserInput input, final int position) {
+            return get().parse(input, position);
+        }
+
+        // no recursion into the target, lazy is how grammars close their cycles
+        @Override
+        public String toString() {
+            return "lazy";
+        }
+    }
+
+    // a leaf parser that declares the chars it can start with, so alternatives can be picked by the next char
+    public abstract static class Primitive<A> extends ParserNode<A> {
+        private final String name;
+        private final CharClass first;
+        private final boolean nullable;
+
+        Primitive(final String name, final CharPredicate first, final boolean nullable) {
+            this.name = name;
+            this.first = first == null ? null : CharClass.of(first);
+            this.nullable = nullable;
+        }
+
+        // null if it can start with any char
+        public CharClass getFirst() {
+            return first;
+        }
+
+        public boolean isNullable() {
+            return nullable;
+        }
+
+        // what a failure right at its start reports as expected, null if it reports nothing. A nullable primitive
+        // never fails
+        public String getExpectation() {
+            return nullable ? null : name;
+        }
+
+        // a failure that reports the name of this primitive as what was expected
+        protected Result<A> fail(final ParserInput input, final int position) {
+            return input.fail(position, name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    // ordered choice that only tries the alternatives whose FIRST set contains the next char
+    public static final class Choice<A> extends ParserNode<A> {
+        private final ParserFunc<A>[] alternatives;
+        private volatile int[][] table;
+        // per alternative, written before table and read only after it
+        private String[][] expectations;
+
+        @SuppressWarnings("unchecked")
+        Choice(final List<? extends ParserFunc<A>> alternatives) {
+            if (alternatives.isEmpty()) {
+                throw new IllegalArgumentException("choice needs at least one alternative");
+            }
+            this.alternatives = (ParserFunc<A>[]) alternatives.toArray(new ParserFunc<?>[0]);
+        }
+
+        public List<ParserFunc<A>> getAlternatives() {
+            return List.of(alternatives);
+        }
+
+        // indices of the alternatives worth trying at this position, in their original order
+        public int[] candidates(final ParserInput input, final int position) {
+            var t = table;
+            if (t == null) {
+                t = buildTable();
+                table = t;
+            }
+            if (input.isEnd(position)) {
+                return t[ASCII_SIZE];
+            }
+            final var c = input.charAt(position);
+            return c < ASCII_SIZE ? t[c] : t[ASCII_SIZE + 1];
+        }
+
+        @Override
+        public Result<A> parse(final ParserInput input, final int position) {
+            final var candidates = candidates(input, position);
+            for (final var i : candidates) {
+                final var res = alternatives[i].parse(input, position);
+                if (res.getStatus().equals(ParserStatus.OK)) {
+                    return res;
+                }
+            }
+            return fail(input, position, candidates);
+        }
+
+        // none of the candidates matched. The skipped alternatives would fail right at position, what they expect
+        // there is recorded from their precomputed labels instead of running them
+        public Result<A> fail(final ParserInput input, final int position, final int[] candidates) {
+            if (candidates.length < alternatives.length) {
+                var next = 0;
+                for (int i = 0; i < alternatives.length; i++) {
+                    if (next < candidates.length && candidates[next] == i) {
+                        next++;
+                        continue;
+                    }
+                    for (final var expectation : expectations[i]) {
+                        input.fail(position, expectation);
+                    }
+                }
+            }
+            return input.fail(position);
+        }
+
+        // built on first use, the alternatives may still contain lazy references to rules not initialised yet
+        private int[][] buildTable() {
+            final var firsts = new ParserOptimizer.First[alternatives.length];
+            final var expected = new String[alternatives.length][];
+            for (int i = 0; i < alternatives.length; i++) {
+                firsts[i] = ParserOptimizer.first(alternatives[i]);
+                expected[i] = ParserOptimizer.expected(alternatives[i]).toArray(new String[0]);
+            }
+            expectations = expected;
+            final var t = new int[ASCII_SIZE + 2][];
+            for (char c = 0; c < ASCII_SIZE; c++) {
+                final var ch = c;
+                t[c] = select(firsts, f -> f.canStartWith(ch));
+            }
+            t[ASCII_SIZE] = select(firsts, ParserOptimizer.First::isNullable);
+            t[ASCII_SIZE + 1] = select(firsts, f -> true);
+            return t;
+        }
+
+        private static int[] select(final ParserOptimizer.First[] firsts, final Predicate<ParserOptimizer.First> viable) {
+            final var selected = new ArrayList<Integer>();
+            for (int i = 0; i < firsts.length; i++) {
+                if (viable.test(firsts[i])) {
+                    selected.add(i);
+                }
+            }
+            return selected.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        @Override
+        public String toString() {
+            final var sb = new StringBuilder("choice(");
+            for (int i = 0; i < alternatives.length; i++) {
+                sb.append(i == 0 ? "" : ", ").append(alternatives[i]);
+            }
+            return sb.append(")").toString();
+        }
+    }
+}
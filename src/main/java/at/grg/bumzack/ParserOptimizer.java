@@ -0,0 +1,318 @@
+package at.grg.bumzack;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Rewrites a ParserNode tree into an equivalent one that does less work per char:
+// - adjacent literals are merged into one literal
+// - map(map(p, f), g) becomes map(p, f.andThen(g))
+// - either chains become one choice that only tries the alternatives whose FIRST set contains the next char
+// - whitespaceWrap(whitespaceWrap(p)) becomes whitespaceWrap(p)
+// - lazy references that do not close a cycle are inlined
+// Results are the same as for the original tree, except that a merged literal reports a failure at its start.
+public final class ParserOptimizer {
+
+    private final Map<ParserFunc<?>, ParserFunc<?>> done = new IdentityHashMap<>();
+    private final Set<ParserFunc<?>> inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private ParserOptimizer() {
+    }
+
+    public static <A> ParserFunc<A> optimize(final ParserFunc<A> parser) {
+        return new ParserOptimizer().rewrite(parser);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <A> ParserFunc<A> rewrite(final ParserFunc<A> parser) {
+        if (parser instanceof ParserNode.Lazy) {
+            final var target = ((ParserNode.Lazy<A>) parser).get();
+            if (inProgress.contains(target)) {
+                return new ParserNode.Lazy<>(() -> (ParserFunc<A>) done.get(target));
+            }
+            return rewrite(target);
+        }
+        if (!(parser instanceof ParserNode) || parser instanceof ParserNode.Literal || parser instanceof ParserNode.Primitive) {
+            return parser;
+        }
+        final var cached = done.get(parser);
+        if (cached != null) {
+            return (ParserFunc<A>) cached;
+        }
+
+        inProgress.add(parser);
+        final ParserFunc result;
+        if (parser instanceof ParserNode.Sequence) {
+            final var node = (ParserNode.Sequence) parser;
+            result = sequence(rewrite(node.getFirst()), rewrite(node.getSecond()), node.getKeep());
+        } else if (parser instanceof ParserNode.Mapping) {
+            final var node = (ParserNode.Mapping) parser;
+            result = map(rewrite(node.getParser()), node.getMapFn());
+        } else if (parser instanceof ParserNode.Either || parser instanceof ParserNode.Choice) {
+            final var alternatives = new ArrayList<ParserFunc>();
+            flatten(parser, alternatives);
+            alternatives.replaceAll(this::rewrite);
+            result = new ParserNode.Choice(alternatives);
+        } else if (parser instanceof ParserNode.Many) {
+            final var node = (ParserNode.Many) parser;
+            result = new ParserNode.Many(rewrite(node.getParser()), node.getMin());
+        } else if (parser instanceof ParserNode.Repeat) {
+            final var node = (ParserNode.Repeat) parser;
+            result = new ParserNode.Repeat(rewrite(node.getParser()), node.getMin(), node.getSink(), node.getInit(), node.getStep());
+        } else if (parser instanceof ParserNode.Pred) {
+            final var node = (ParserNode.Pred) parser;
+            result = new ParserNode.Pred(rewrite(node.getParser()), node.getPredicate());
+        } else if (parser instanceof ParserNode.Memo) {
+            result = new ParserNode.Memo(rewrite(((ParserNode.Memo) parser).getParser()));
+        } else {
+            result = parser;
+        }
+        inProgress.remove(parser);
+        done.put(parser, result);
+        return result;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ParserFunc sequence(final ParserFunc first, final ParserFunc second, final ParserNode.Keep keep) {
+        if (first instanceof ParserNode.Literal && second instanceof ParserNode.Literal) {
+            final var left = ((ParserNode.Literal) first).getLiteral();
+            final var right = ((ParserNode.Literal) second).getLiteral();
+            final var merged = new ParserNode.Literal(left + right);
+            switch (keep) {
+                case LEFT:
+                    return new ParserNode.Mapping<>(merged, s -> left);
+                case RIGHT:
+                    return new ParserNode.Mapping<>(merged, s -> right);
+                default:
+                    final var both = Pair.of(left, right);
+                    return new ParserNode.Mapping<>(merged, s -> both);
+            }
+        }
+        // "a" then ("b" then x) keeping x
+        if (keep == ParserNode.Keep.RIGHT && first instanceof ParserNode.Literal && isSequence(second, ParserNode.Keep.RIGHT)) {
+            final var inner = (ParserNode.Sequence) second;
+            if (inner.getFirst() instanceof ParserNode.Literal) {
+                final var merged = ((ParserNode.Literal) first).getLiteral() + ((ParserNode.Literal) inner.getFirst()).getLiteral();
+                return sequence(new ParserNode.Literal(merged), inner.getSecond(), ParserNode.Keep.RIGHT);
+            }
+        }
+        // (x then "a") then "b" keeping x
+        if (keep == ParserNode.Keep.LEFT && second instanceof ParserNode.Literal && isSequence(first, ParserNode.Keep.LEFT)) {
+            final var inner = (ParserNode.Sequence) first;
+            if (inner.getSecond() instanceof ParserNode.Literal) {
+                final var merged = ((ParserNode.Literal) inner.getSecond()).getLiteral() + ((ParserNode.Literal) second).getLiteral();
+                return sequence(inner.getFirst(), new ParserNode.Literal(merged), ParserNode.Keep.LEFT);
+            }
+        }
+
+        final var node = new ParserNode.Sequence(first, second, keep);
+        final var wrapped = unwrapWhitespace(node);
+        if (wrapped != null) {
+            if (unwrapWhitespace(wrapped) != null) {
+                return wrapped;
+            }
+            if (wrapped instanceof ParserNode.Memo && unwrapWhitespace(((ParserNode.Memo) wrapped).getParser()) != null) {
+                return wrapped;
+            }
+        }
+        return node;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ParserFunc map(final ParserFunc parser, final Function mapFn) {
+        if (parser instanceof ParserNode.Mapping) {
+            final var inner = (ParserNode.Mapping) parser;
+            return new ParserNode.Mapping(inner.getParser(), inner.getMapFn().andThen(mapFn));
+        }
+        return new ParserNode.Mapping(parser, mapFn);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static void flatten(final ParserFunc parser, final List<ParserFunc> alternatives) {
+        if (parser instanceof ParserNode.Either) {
+            flatten(((ParserNode.Either) parser).getFirst(), alternatives);
+            flatten(((ParserNode.Either) parser).getSecond(), alternatives);
+        } else if (parser instanceof ParserNode.Choice) {
+            for (final var alternative : ((ParserNode.Choice<?>) parser).getAlternatives()) {
+                flatten(alternative, alternatives);
+            }
+        } else {
+            alternatives.add(parser);
+        }
+    }
+
+    private static boolean isSequence(final ParserFunc<?> parser, final ParserNode.Keep keep) {
+        return parser instanceof ParserNode.Sequence && ((ParserNode.Sequence<?, ?, ?>) parser).getKeep() == keep;
+    }
+
+    // p for right(skipSpace0(), left(p, skipSpace0())), null for anything else
+    private static ParserFunc<?> unwrapWhitespace(final ParserFunc<?> parser) {
+        if (!isSequence(parser, ParserNode.Keep.RIGHT)) {
+            return null;
+        }
+        final var outer = (ParserNode.Sequence<?, ?, ?>) parser;
+        if (outer.getFirst() != Parser.skipSpace0() || !isSequence(outer.getSecond(), ParserNode.Keep.LEFT)) {
+            return null;
+        }
+        final var inner = (ParserNode.Sequence<?, ?, ?>) outer.getSecond();
+        return inner.getSecond() == Parser.skipSpace0() ? inner.getFirst() : null;
+    }
+
+    public static First first(final ParserFunc<?> parser) {
+        return first(parser, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private static First first(final ParserFunc<?> parser, final Set<ParserFunc<?>> visiting) {
+        if (!visiting.add(parser)) {
+            return First.ANYTHING;
+        }
+        try {
+            if (parser instanceof ParserNode.Literal) {
+                final var literal = ((ParserNode.Literal) parser).getLiteral();
+                return literal.isEmpty() ? First.ANYTHING : new First(CharClass.of(c -> c == literal.charAt(0)), false);
+            }
+            if (parser instanceof ParserNode.Primitive) {
+                final var primitive = (ParserNode.Primitive<?>) parser;
+                return new First(primitive.getFirst(), primitive.isNullable());
+            }
+            if (parser instanceof ParserNode.Sequence) {
+                final var node = (ParserNode.Sequence<?, ?, ?>) parser;
+                final var first = first(node.getFirst(), visiting);
+                return first.isNullable() ? first.then(first(node.getSecond(), visiting)) : first;
+            }
+            if (parser instanceof ParserNode.Mapping) {
+                return first(((ParserNode.Mapping<?, ?>) parser).getParser(), visiting);
+            }
+            if (parser instanceof ParserNode.Pred) {
+                return first(((ParserNode.Pred<?>) parser).getParser(), visiting);
+            }
+            if (parser instanceof ParserNode.Memo) {
+                return first(((ParserNode.Memo<?>) parser).getParser(), visiting);
+            }
+            if (parser instanceof ParserNode.Lazy) {
+                return first(((ParserNode.Lazy<?>) parser).get(), visiting);
+            }
+            if (parser instanceof ParserNode.Many) {
+                final var node = (ParserNode.Many<?>) parser;
+                final var first = first(node.getParser(), visiting);
+                return node.getMin() > 0 ? first : new First(first.getChars(), true);
+            }
+            if (parser instanceof ParserNode.Repeat) {
+                final var node = (ParserNode.Repeat<?, ?>) parser;
+                final var first = first(node.getParser(), visiting);
+                return node.getMin() > 0 ? first : new First(first.getChars(), true);
+            }
+            if (parser instanceof ParserNode.Either) {
+                final var node = (ParserNode.Either<?>) parser;
+                return first(node.getFirst(), visiting).or(first(node.getSecond(), visiting));
+            }
+            if (parser instanceof ParserNode.Choice) {
+                var first = First.NOTHING;
+                for (final var alternative : ((ParserNode.Choice<?>) parser).getAlternatives()) {
+                    first = first.or(first(alternative, visiting));
+                }
+                return first;
+            }
+            return First.ANYTHING;
+        } finally {
+            visiting.remove(parser);
+        }
+    }
+
+    // the expectations a parser reports when it fails right at its start, in the order it reports them
+    public static List<String> expected(final ParserFunc<?> parser) {
+        final var expected = new ArrayList<String>();
+        expected(parser, expected, Collections.newSetFromMap(new IdentityHashMap<>()));
+        return expected;
+    }
+
+    private static void expected(final ParserFunc<?> parser, final List<String> expected, final Set<ParserFunc<?>> visiting) {
+        if (!visiting.add(parser)) {
+            return;
+        }
+        try {
+            if (parser instanceof ParserNode.Literal) {
+                add(expected, "\"" + ((ParserNode.Literal) parser).getLiteral() + "\"");
+            } else if (parser instanceof ParserNode.Primitive) {
+                add(expected, ((ParserNode.Primitive<?>) parser).getExpectation());
+            } else if (parser instanceof ParserNode.Sequence) {
+                final var node = (ParserNode.Sequence<?, ?, ?>) parser;
+                expected(node.getFirst(), expected, visiting);
+                if (first(node.getFirst()).isNullable()) {
+                    expected(node.getSecond(), expected, visiting);
+                }
+            } else if (parser instanceof ParserNode.Mapping) {
+                expected(((ParserNode.Mapping<?, ?>) parser).getParser(), expected, visiting);
+            } else if (parser instanceof ParserNode.Pred) {
+                expected(((ParserNode.Pred<?>) parser).getParser(), expected, visiting);
+            } else if (parser instanceof ParserNode.Memo) {
+                expected(((ParserNode.Memo<?>) parser).getParser(), expected, visiting);
+            } else if (parser instanceof ParserNode.Lazy) {
+                expected(((ParserNode.Lazy<?>) parser).get(), expected, visiting);
+            } else if (parser instanceof ParserNode.Many) {
+                expected(((ParserNode.Many<?>) parser).getParser(), expected, visiting);
+            } else if (parser instanceof ParserNode.Repeat) {
+                expected(((ParserNode.Repeat<?, ?>) parser).getParser(), expected, visiting);
+            } else if (parser instanceof ParserNode.Either) {
+                expected(((ParserNode.Either<?>) parser).getFirst(), expected, visiting);
+                expected(((ParserNode.Either<?>) parser).getSecond(), expected, visiting);
+            } else if (parser instanceof ParserNode.Choice) {
+                for (final var alternative : ((ParserNode.Choice<?>) parser).getAlternatives()) {
+                    expected(alternative, expected, visiting);
+                }
+            }
+        } finally {
+            visiting.remove(parser);
+        }
+    }
+
+    private static void add(final List<String> expected, final String expectation) {
+        if (expectation != null && !expected.contains(expectation)) {
+            expected.add(expectation);
+        }
+    }
+
+    // the chars a parser can start with (null: any char) and whether it can succeed without consuming anything
+    public static final class First {
+        static final First ANYTHING = new First(null, true);
+        static final First NOTHING = new First(CharClass.of(c -> false), false);
+
+        private final CharClass chars;
+        private final boolean nullable;
+
+        First(final CharClass chars, final boolean nullable) {
+            this.chars = chars;
+            this.nullable = nullable;
+        }
+
+        public CharClass getChars() {
+            return chars;
+        }
+
+        public boolean isNullable() {
+            return nullable;
+        }
+
+        public boolean canStartWith(final char c) {
+            return nullable || chars == null || chars.test(c);
+        }
+
+        // a sequence of this and other, where this can be empty: other may start it too, but only both being
+        // empty makes the sequence nullable
+        First then(final First other) {
+            final var union = or(other);
+            return new First(union.chars, nullable && other.nullable);
+        }
+
+        First or(final First other) {
+            final var union = chars == null || other.chars == null ? null : CharClass.of(chars.or(other.chars));
+            return new First(union, nullable || other.nullable);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package at.grg.bumzack;
 
 public enum ParserStatus {
-    OK, Error
+    OK, Error,
+    // the parse ran into the end of the input so far, only a PushParser reports this
+    Incomplete
 
 }
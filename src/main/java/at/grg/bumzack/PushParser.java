@@ -0,0 +1,128 @@
+package at.grg.bumzack;
+
+import java.nio.CharBuffer;
+import java.util.function.Consumer;
+
+// Push style front end for any parser, meant for streams of many small values like ImpEx lines: input is fed in
+// chunks as it arrives and every complete value is handed to the consumer. A value that runs into the end of the
+// buffered chars is not decided yet, feed returns Incomplete. There is no suspended parser state to resume, only the
+// unconsumed tail is kept: the cut off value is parsed again from its start, once its buffered chars have doubled
+// since the last attempt, so a value of n chars costs O(n) scanning however small the chunks are. Chars of values
+// already handed out are dropped and never scanned again, the open value stays buffered until it is complete.
+// For XML, where one element can be the whole message, use StreamingXmlParser, which keeps its state per tag.
+public final class PushParser<T> {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final ParserFunc<T> parser;
+    private final Consumer<? super T> consumer;
+
+    private char[] buffer;
+    private int start;
+    private int end;
+    private long consumed;
+    private boolean finished;
+    // the open value is only tried again once this many chars are buffered
+    private int retryAt;
+    private long errorPosition = -1;
+
+    public PushParser(final ParserFunc<T> parser, final Consumer<? super T> consumer) {
+        this(parser, consumer, DEFAULT_BUFFER_SIZE);
+    }
+
+    public PushParser(final ParserFunc<T> parser, final Consumer<? super T> consumer, final int bufferSize) {
+        this.parser = parser;
+        this.consumer = consumer;
+        this.buffer = new char[Math.max(bufferSize, 16)];
+    }
+
+    // OK never comes back from here, Incomplete means waiting for more input
+    public ParserStatus feed(final CharSequence chunk) {
+        if (finished) {
+            throw new IllegalStateException("input already finished");
+        }
+        if (errorPosition >= 0) {
+            return ParserStatus.Error;
+        }
+        append(chunk);
+        return drain();
+    }
+
+    // no more input will come, so whatever is still buffered has to parse completely
+    public ParserStatus finish() {
+        if (finished) {
+            throw new IllegalStateException("input already finished");
+        }
+        finished = true;
+        if (errorPosition >= 0) {
+            return ParserStatus.Error;
+        }
+        return drain();
+    }
+
+    // offset in the whole stream where the parser failed, -1 without error
+    public long getErrorPosition() {
+        return errorPosition;
+    }
+
+    // chars of the stream that were parsed into values
+    public long getConsumed() {
+        return consumed + start;
+    }
+
+    // chars waiting for the rest of their value
+    public int getBuffered() {
+        return end - start;
+    }
+
+    private ParserStatus drain() {
+        final var input = ParserInput.session(CharBuffer.wrap(buffer, 0, end));
+        while (start < end) {
+            if (!finished && end - start < retryAt) {
+                return ParserStatus.Incomplete;
+            }
+            input.clearFailure();
+            input.clearHitEnd();
+            final var res = parser.parse(input, start);
+            // a failure may still become a match and a match may still grow with the next chunk
+            if (input.hitEnd() && !finished) {
+                retryAt = 2 * (end - start);
+                return ParserStatus.Incomplete;
+            }
+            if (res.getStatus().equals(ParserStatus.Error) || res.getPosition() == start) {
+                errorPosition = consumed + Math.max(input.getFailurePosition(), start);
+                return ParserStatus.Error;
+            }
+            final var output = res.getOutput();
+            start = res.getPosition();
+            retryAt = 0;
+            consumer.accept(output);
+        }
+        return finished ? ParserStatus.OK : ParserStatus.Incomplete;
+    }
+
+    private void append(final CharSequence chunk) {
+        final var length = chunk.length();
+        if (end + length > buffer.length) {
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                consumed += start;
+                end -= start;
+                start = 0;
+            }
+            if (end + length > buffer.length) {
+                final var grown = new char[Math.max(buffer.length * 2, end + length)];
+                System.arraycopy(buffer, 0, grown, 0, end);
+                buffer = grown;
+            }
+        }
+        if (chunk instanceof String) {
+            ((String) chunk).getChars(0, length, buffer, end);
+        } else {
+            for (int i = 0; i < length; i++) {
+                buffer[end + i] = chunk.charAt(i);
+            }
+        }
+        end += length;
+    }
+}
@@ -2,10 +2,14 @@ package at.grg.bumzack;
 
 public class Result<OUTPUT> {
 
+    private static final Result<?> FAILURE = new Failure();
+
     private String input;
     private OUTPUT output;
     private ParserStatus status;
     private String errorMsg;
+    private int position;
+    private ParseError error;
 
     public Result() {
     }
@@ -17,6 +21,20 @@ public class Result<OUTPUT> {
         this.errorMsg = errorMsg;
     }
 
+    public Result(final String input, final OUTPUT output, final ParserStatus status, final String errorMsg, final int position) {
+        this(input, output, status, errorMsg);
+        this.position = position;
+    }
+
+    public static <OUTPUT> Result<OUTPUT> ok(final OUTPUT output, final int position) {
+        return new Result<>(null, output, ParserStatus.OK, null, position);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <OUTPUT> Result<OUTPUT> failure() {
+        return (Result<OUTPUT>) FAILURE;
+    }
+
     public String getInput() {
         return input;
     }
@@ -49,6 +67,22 @@ public class Result<OUTPUT> {
         this.errorMsg = errorMsg;
     }
 
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public ParseError getError() {
+        return error;
+    }
+
+    public void setError(ParseError error) {
+        this.error = error;
+    }
+
     @Override
     public String toString() {
         return "Result{" +
@@ -56,6 +90,45 @@ public class Result<OUTPUT> {
                 ", output=" + output +
                 ", status=" + status +
                 ", errorMsg='" + errorMsg + '\'' +
+                ", position=" + position +
                 '}';
     }
+
+    // one immutable instance shared by every failed parse; where it failed is recorded on the ParserInput
+    private static final class Failure extends Result<Object> {
+
+        private Failure() {
+            super(null, null, ParserStatus.Error, null, -1);
+        }
+
+        @Override
+        public void setInput(String input) {
+            throw new UnsupportedOperationException("shared failure result is immutable");
+        }
+
+        @Override
+        public void setOutput(Object output) {
+            throw new UnsupportedOperationException("shared failure result is immutable");
+        }
+
+        @Override
+        public void setStatus(ParserStatus status) {
+            throw new UnsupportedOperationException("shared failure result is immutable");
+        }
+
+        @Override
+        public void setErrorMsg(String errorMsg) {
+            throw new UnsupportedOperationException("shared failure result is immutable");
+        }
+
+        @Override
+        public void setPosition(int position) {
+            throw new UnsupportedOperationException("shared failure result is immutable");
+        }
+
+        @Override
+        public void setError(ParseError error) {
+            throw new UnsupportedOperationException("shared failure result is immutable");
+        }
+    }
 }
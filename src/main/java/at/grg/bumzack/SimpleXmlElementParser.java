@@ -4,127 +4,126 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.List;
-import java.util.function.BiFunction;
-import java.util.function.Function;
-import java.util.function.Predicate;
 
 import static at.grg.bumzack.Parser.*;
 
 public class SimpleXmlElementParser {
 
+    private static final ParserFunc<Pair<String, String>> ATTRIBUTE_PAIR = named("attributePair", pair(
+            identifier(),
+            right(
+                    matchLiteral("="),
+                    quotedString()
+            )
+    ));
+
+    private static final ParserFunc<List<Pair<String, String>>> ATTRIBUTES = zeroOrMore(
+            right(
+                    space1(),
+                    ATTRIBUTE_PAIR
+            )
+    );
+
+    private static final ParserFunc<Pair<String, List<Pair<String, String>>>> XML_ELEMENT_START = named("xmlElementStart", memo(right(
+            matchLiteral("<"),
+            pair(
+                    identifier(),
+                    ATTRIBUTES
+            )
+    )));
+
+    private static final ParserFunc<XmlElement> XML_SINGLE_ELEMENT = named("xmlSingleElement", map(
+            left(
+                    XML_ELEMENT_START,
+                    matchLiteral("/>")
+            ),
+            SimpleXmlElementParser::toXmlElement
+    ));
+
+    private static final ParserFunc<XmlElement> XML_OPEN_ELEMENT = map(
+            left(
+                    XML_ELEMENT_START,
+                    matchLiteral(">")
+            ),
+            SimpleXmlElementParser::toXmlElement
+    );
+
+    private static final ParserFunc<String> XML_CLOSE_TAG = named("xmlCloseTag", right(
+            matchLiteral("</"),
+            left(
+                    identifier(),
+                    matchLiteral(">")
+            )
+    ));
+
+    private static final ParserFunc<XmlElement> XML_PARENT_ELEMENT = named("xmlParentElement", map(
+            pred(
+                    pair(
+                            XML_OPEN_ELEMENT,
+                            pair(
+                                    zeroOrMore(lazy(SimpleXmlElementParser::xmlElement)),
+                                    XML_CLOSE_TAG
+                            )
+                    ),
+                    p -> StringUtils.equals(p.getLeft().getName(), p.getRight().getRight())
+            ),
+            p -> {
+                final var elem = p.getLeft();
+                elem.setChildren(p.getRight().getLeft());
+                return elem;
+            }
+    ));
+
+    private static final ParserFunc<XmlElement> XML_ELEMENT = named("xmlElement", memo(whitespaceWrap(choice(XML_SINGLE_ELEMENT, XML_PARENT_ELEMENT))));
+
+    // names and attributes stay slices of the input until they are read, see XmlElement
+    private static final ParserFunc<XmlElement> LAZY_XML_ELEMENT = named("lazyXmlElement", new LazyXmlElementParser());
+
     public static ParserFunc<Pair<String, String>> attributePair() {
-        return input -> pair(
-                identifier(),
-                right(
-                        matchLiteral("="),
-                        quotedString()
-                )
-        ).parse(input);
+        return ATTRIBUTE_PAIR;
     }
 
     public static ParserFunc<List<Pair<String, String>>> attributes() {
-        return input -> zeroOrMore(
-                right(
-                        space1(),
-                        attributePair()
-                )
-        ).parse(input);
+        return ATTRIBUTES;
     }
 
     public static ParserFunc<Pair<String, List<Pair<String, String>>>> xmlElementStart() {
-        return input -> right(
-                matchLiteral("<"),
-                pair(
-                        identifier(),
-                        attributes()
-                )
-        ).parse(input);
+        return XML_ELEMENT_START;
     }
 
     public static ParserFunc<XmlElement> xmlSingleElement() {
-        return input -> {
-            final Function<Pair<String, List<Pair<String, String>>>, XmlElement> mapFn =
-                    p -> {
-                        final var xml = new XmlElement();
-                        xml.setName(p.getLeft());
-                        xml.setAttributes(p.getRight());
-                        return xml;
-                    };
-
-            return map(
-                    left(
-                            xmlElementStart(),
-                            matchLiteral("/>")
-                    ),
-                    mapFn
-            ).parse(input);
-        };
+        return XML_SINGLE_ELEMENT;
     }
 
     public static ParserFunc<XmlElement> xmlOpenElement() {
-        return input -> {
-            final Function<Pair<String, List<Pair<String, String>>>, XmlElement> mapFn =
-                    p -> {
-                        final var xml = new XmlElement();
-                        xml.setName(p.getLeft());
-                        xml.setAttributes(p.getRight());
-                        return xml;
-                    };
-
-            return map(
-                    left(
-                            xmlElementStart(),
-                            matchLiteral(">")
-                    ),
-                    mapFn
-            ).parse(input);
-        };
+        return XML_OPEN_ELEMENT;
+    }
+
+    public static ParserFunc<String> xmlCloseTag() {
+        return XML_CLOSE_TAG;
     }
 
     public static ParserFunc<String> xmlCloseElement(final String expectedName) {
-        return input -> {
-            final Predicate<String> pred = p -> StringUtils.equals(p, expectedName);
-
-            return pred(
-                    right(
-                            matchLiteral("</"),
-                            left(
-                                    identifier(),
-                                    matchLiteral(">")
-
-                            )),
-                    pred
-            ).parse(input);
-        };
+        return pred(XML_CLOSE_TAG, p -> StringUtils.equals(p, expectedName));
     }
 
     public static ParserFunc<XmlElement> xmlParentElement() {
-        return input -> {
-            final BiFunction<XmlElement, List<XmlElement>, XmlElement> mapFn = (elem, l) -> {
-                elem.setChildren(l);
-                return elem;
-            };
-
-            final Function<XmlElement, ParserFunc<XmlElement>> andThenFn = xml -> mapBiFunc(
-                    left(
-                            zeroOrMore(xmlElement()),
-                            xmlCloseElement(xml.getName())
-                    ),
-                    mapFn,
-                    xml
-            );
+        return XML_PARENT_ELEMENT;
+    }
 
-            final ParserFunc<XmlElement> parser = and_then(
-                    xmlOpenElement(),
-                    andThenFn
-            );
+    public static ParserFunc<XmlElement> xmlElement() {
+        return XML_ELEMENT;
+    }
 
-            return parser.parse(input);
-        };
+    public static ParserFunc<XmlElement> lazyXmlElement() {
+        return LAZY_XML_ELEMENT;
     }
 
-    public static ParserFunc<XmlElement> xmlElement() {
-        return input -> whitespaceWrap(either(xmlSingleElement(), xmlParentElement())).parse(input);
+    private static XmlElement toXmlElement(final Pair<String, List<Pair<String, String>>> p) {
+        final var xml = new XmlElement();
+        xml.setName(p.getLeft());
+        xml.setAttributes(p.getRight());
+        return xml;
     }
 
 }
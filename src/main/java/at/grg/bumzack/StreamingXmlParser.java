@@ -0,0 +1,228 @@
+package at.grg.bumzack;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import static at.grg.bumzack.SimpleXmlElementParser.xmlCloseTag;
+import static at.grg.bumzack.SimpleXmlElementParser.xmlElementStart;
+
+// Reads elements through a sliding buffer that only has to hold the tag currently being parsed.
+// Memory is bounded by the longest tag plus the stack of open element names.
+public class StreamingXmlParser implements Iterator<XmlEvent>, Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final ParserFunc<Pair<String, List<Pair<String, String>>>> ELEMENT_START = ParserCompiler.compile(ParserOptimizer.optimize(xmlElementStart()));
+    private static final ParserFunc<String> CLOSE_TAG = ParserCompiler.compile(ParserOptimizer.optimize(xmlCloseTag()));
+
+    private final Reader reader;
+    private final Deque<String> open = new ArrayDeque<>();
+    // names outlive the buffer they were read from, interning keeps one instance per distinct name
+    private final SymbolTable symbols = new SymbolTable();
+
+    private char[] buffer;
+    private int start;
+    private int end;
+    private long consumed;
+    private boolean eof;
+    private ParserInput input;
+    private XmlEvent next;
+
+    public StreamingXmlParser(final Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StreamingXmlParser(final Reader reader, final int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[Math.max(bufferSize, 16)];
+    }
+
+    public static StreamingXmlParser of(final ReadableByteChannel channel, final Charset charset) {
+        return new StreamingXmlParser(Channels.newReader(channel, charset.newDecoder(), -1));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readEvent();
+        }
+        return next != null;
+    }
+
+    @Override
+    public XmlEvent next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final var event = next;
+        next = null;
+        return event;
+    }
+
+    public void forEachSubtree(final int depth, final Consumer<XmlElement> consumer) {
+        final Deque<XmlElement> building = new ArrayDeque<>();
+        while (hasNext()) {
+            final var event = next();
+            if (event.getDepth() < depth) {
+                continue;
+            }
+            switch (event.getType()) {
+                case START:
+                    final var element = event.getElement();
+                    element.setChildren(new ArrayList<>());
+                    attach(building, element);
+                    building.push(element);
+                    break;
+                case SINGLE:
+                    if (building.isEmpty()) {
+                        consumer.accept(event.getElement());
+                    } else {
+                        attach(building, event.getElement());
+                    }
+                    break;
+                case END:
+                    final var done = building.pop();
+                    if (building.isEmpty()) {
+                        consumer.accept(done);
+                    }
+                    break;
+            }
+        }
+    }
+
+    public int getDepth() {
+        return open.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static void attach(final Deque<XmlElement> building, final XmlElement element) {
+        final var parent = building.peek();
+        if (parent != null) {
+            parent.getChildren().add(element);
+        }
+    }
+
+    private XmlEvent readEvent() {
+        while (true) {
+            while (start < end && Character.isWhitespace(buffer[start])) {
+                start++;
+            }
+            if (start == end) {
+                if (fill()) {
+                    continue;
+                }
+                if (!open.isEmpty()) {
+                    throw new ParserException("unexpected end of input inside <" + open.peek() + ">", consumed + start);
+                }
+                return null;
+            }
+            if (buffer[start] != '<') {
+                throw new ParserException("expected '<'", consumed + start);
+            }
+
+            final var event = parseTag();
+            if (event != null) {
+                return event;
+            }
+            if (input.hitEnd() && !eof) {
+                fill();
+                continue;
+            }
+            if (input.hitEnd()) {
+                throw new ParserException("unexpected end of input in tag", consumed + start);
+            }
+            throw new ParserException("malformed tag", consumed + Math.max(input.getFailurePosition(), start));
+        }
+    }
+
+    private XmlEvent parseTag() {
+        input.clearFailure();
+        input.clearHitEnd();
+
+        if (input.startsWith("</", start)) {
+            final var res = CLOSE_TAG.parse(input, start);
+            if (res.getStatus().equals(ParserStatus.Error)) {
+                return null;
+            }
+            final var expected = open.peek();
+            if (!StringUtils.equals(expected, res.getOutput())) {
+                throw new ParserException("expected </" + expected + "> but found </" + res.getOutput() + ">", consumed + start);
+            }
+            open.pop();
+            start = res.getPosition();
+            return new XmlEvent(XmlEventTypeEnum.END, res.getOutput(), null, open.size());
+        }
+
+        final var res = ELEMENT_START.parse(input, start);
+        if (res.getStatus().equals(ParserStatus.Error)) {
+            return null;
+        }
+        final var element = new XmlElement();
+        element.setName(res.getOutput().getLeft());
+        element.setAttributes(res.getOutput().getRight());
+
+        final var position = res.getPosition();
+        if (input.startsWith("/>", position)) {
+            start = position + 2;
+            return new XmlEvent(XmlEventTypeEnum.SINGLE, element.getName(), element, open.size());
+        }
+        if (input.startsWith(">", position)) {
+            start = position + 1;
+            final var depth = open.size();
+            open.push(element.getName());
+            return new XmlEvent(XmlEventTypeEnum.START, element.getName(), element, depth);
+        }
+        input.fail(position);
+        return null;
+    }
+
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            consumed += start;
+            end -= start;
+            start = 0;
+        }
+        if (end == buffer.length) {
+            final var grown = new char[buffer.length * 2];
+            System.arraycopy(buffer, 0, grown, 0, end);
+            buffer = grown;
+        }
+        try {
+            final var read = reader.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                eof = true;
+            } else {
+                end += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        input = ParserInput.session(CharBuffer.wrap(buffer, 0, end));
+        input.setSymbols(symbols);
+        return !eof;
+    }
+}
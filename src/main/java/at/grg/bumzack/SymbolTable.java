@@ -0,0 +1,84 @@
+package at.grg.bumzack;
+
+// Canonical Strings for names that repeat, like element names, attribute keys and column names.
+// The candidate chars are hashed in place, so a hit allocates nothing. The table is bounded: a name that finds no
+// free slot within a few probes is returned as a new String and not remembered.
+// Can be shared between threads: Strings are immutable, so a racy slot write at worst loses one entry.
+public final class SymbolTable {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    // longer names are rarely repeated, they are not interned
+    static final int MAX_SYMBOL_LENGTH = 64;
+    private static final int MAX_PROBES = 8;
+
+    private final String[] symbols;
+    private final int mask;
+
+    public SymbolTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SymbolTable(final int capacity) {
+        final var size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        this.symbols = new String[size];
+        this.mask = size - 1;
+    }
+
+    public String intern(final CharSequence chars, final int from, final int to) {
+        final var length = to - from;
+        if (length > MAX_SYMBOL_LENGTH) {
+            return chars.subSequence(from, to).toString();
+        }
+        // same hash as String.hashCode, which a String caches, so most mismatches cost one int compare
+        var hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+
+        var index = spread(hash) & mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            final var symbol = symbols[index];
+            if (symbol == null) {
+                final var fresh = chars.subSequence(from, to).toString();
+                symbols[index] = fresh;
+                return fresh;
+            }
+            if (symbol.hashCode() == hash && matches(symbol, chars, from, length)) {
+                return symbol;
+            }
+            index = (index + 1) & mask;
+        }
+        return chars.subSequence(from, to).toString();
+    }
+
+    public String intern(final CharSequence chars) {
+        return intern(chars, 0, chars.length());
+    }
+
+    // number of remembered symbols
+    public int size() {
+        var size = 0;
+        for (final var symbol : symbols) {
+            if (symbol != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private static boolean matches(final String symbol, final CharSequence chars, final int from, final int length) {
+        if (symbol.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (symbol.charAt(i) != chars.charAt(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,347 @@
+package at.grg.bumzack;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A parsed XML document as parallel int arrays instead of an object graph. Elements are numbered in document order,
+// the root is 0. Names are ids into one name table, attribute values are ranges of one shared char buffer.
+// Accepts the same documents as SimpleXmlElementParser.xmlElement() followed by the end of input.
+public final class XmlDocument {
+
+    public static final int NONE = -1;
+
+    private final int size;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] nameIds;
+    // attributes of element i are attributeStarts[i] until attributeStarts[i + 1]
+    private final int[] attributeStarts;
+    private final boolean[] selfClosing;
+    private final int[] attributeKeys;
+    private final int[] valueStarts;
+    private final int[] valueEnds;
+    private final char[] values;
+    private final String[] names;
+
+    private XmlDocument(final Builder builder) {
+        this.size = builder.size;
+        this.parents = Arrays.copyOf(builder.parents, size);
+        this.firstChildren = Arrays.copyOf(builder.firstChildren, size);
+        this.nextSiblings = Arrays.copyOf(builder.nextSiblings, size);
+        this.nameIds = Arrays.copyOf(builder.nameIds, size);
+        this.attributeStarts = Arrays.copyOf(builder.attributeStarts, size + 1);
+        this.attributeStarts[size] = builder.attributeCount;
+        this.selfClosing = Arrays.copyOf(builder.selfClosing, size);
+        this.attributeKeys = Arrays.copyOf(builder.attributeKeys, builder.attributeCount);
+        this.valueStarts = Arrays.copyOf(builder.valueStarts, builder.attributeCount);
+        this.valueEnds = Arrays.copyOf(builder.valueEnds, builder.attributeCount);
+        this.values = Arrays.copyOf(builder.values, builder.valueLength);
+        this.names = builder.names.toArray(new String[0]);
+    }
+
+    public static XmlDocument parse(final CharSequence document) {
+        final var input = ParserInput.of(document);
+        final var builder = new Builder(input);
+        final var start = input.scan(0, CharClass.WHITESPACE);
+        final var end = builder.element(start, NONE);
+        if (end < 0) {
+            throw new ParserException("invalid xml element, " + input.error(), Math.max(input.getFailurePosition(), start));
+        }
+        if (end != input.length()) {
+            throw new ParserException("unexpected content after the root element", end);
+        }
+        return new XmlDocument(builder);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Cursor cursor() {
+        return new Cursor(0);
+    }
+
+    public String getName(final int element) {
+        return names[nameIds[element]];
+    }
+
+    // the same id for every element and attribute with that name
+    public int getNameId(final int element) {
+        return nameIds[element];
+    }
+
+    public String getNameOfId(final int nameId) {
+        return names[nameId];
+    }
+
+    public int getParent(final int element) {
+        return parents[element];
+    }
+
+    public int getFirstChild(final int element) {
+        return firstChildren[element];
+    }
+
+    public int getNextSibling(final int element) {
+        return nextSiblings[element];
+    }
+
+    public int getAttributeCount(final int element) {
+        return attributeStarts[element + 1] - attributeStarts[element];
+    }
+
+    public String getAttributeName(final int element, final int index) {
+        return names[attributeKeys[attribute(element, index)]];
+    }
+
+    public String getAttributeValue(final int element, final int index) {
+        final var attribute = attribute(element, index);
+        return new String(values, valueStarts[attribute], valueEnds[attribute] - valueStarts[attribute]);
+    }
+
+    // the value of the first attribute with that name or null
+    public String getAttribute(final int element, final String name) {
+        for (int i = attributeStarts[element]; i < attributeStarts[element + 1]; i++) {
+            if (names[attributeKeys[i]].equals(name)) {
+                return new String(values, valueStarts[i], valueEnds[i] - valueStarts[i]);
+            }
+        }
+        return null;
+    }
+
+    // builds the XmlElement tree below element, equal to what SimpleXmlElementParser.xmlElement() returns
+    public XmlElement toXmlElement(final int element) {
+        final var xml = new XmlElement();
+        xml.setName(getName(element));
+        final var attributes = new ArrayList<Pair<String, String>>(getAttributeCount(element));
+        for (int i = 0; i < getAttributeCount(element); i++) {
+            attributes.add(Pair.of(getAttributeName(element, i), getAttributeValue(element, i)));
+        }
+        xml.setAttributes(attributes);
+        if (!selfClosing[element]) {
+            final var children = new ArrayList<XmlElement>();
+            for (int child = firstChildren[element]; child != NONE; child = nextSiblings[child]) {
+                children.add(toXmlElement(child));
+            }
+            xml.setChildren(children);
+        }
+        return xml;
+    }
+
+    public XmlElement toXmlElement() {
+        return toXmlElement(0);
+    }
+
+    private int attribute(final int element, final int index) {
+        if (index < 0 || index >= getAttributeCount(element)) {
+            throw new IndexOutOfBoundsException("attribute " + index + " of " + getAttributeCount(element));
+        }
+        return attributeStarts[element] + index;
+    }
+
+    // moves over the elements without allocating; the to* methods return false and stay put if there is no such element
+    public final class Cursor {
+        private int element;
+
+        private Cursor(final int element) {
+            this.element = element;
+        }
+
+        public int getElement() {
+            return element;
+        }
+
+        public String getName() {
+            return XmlDocument.this.getName(element);
+        }
+
+        public int getNameId() {
+            return nameIds[element];
+        }
+
+        public int getAttributeCount() {
+            return XmlDocument.this.getAttributeCount(element);
+        }
+
+        public String getAttribute(final String name) {
+            return XmlDocument.this.getAttribute(element, name);
+        }
+
+        public boolean toFirstChild() {
+            return moveTo(firstChildren[element]);
+        }
+
+        public boolean toNextSibling() {
+            return moveTo(nextSiblings[element]);
+        }
+
+        public boolean toParent() {
+            return moveTo(parents[element]);
+        }
+
+        public void toElement(final int element) {
+            if (element < 0 || element >= size) {
+                throw new IndexOutOfBoundsException("element " + element + " of " + size);
+            }
+            this.element = element;
+        }
+
+        public XmlElement toXmlElement() {
+            return XmlDocument.this.toXmlElement(element);
+        }
+
+        private boolean moveTo(final int target) {
+            if (target == NONE) {
+                return false;
+            }
+            element = target;
+            return true;
+        }
+    }
+
+    private static final class Builder {
+        private final ParserInput input;
+        private final SymbolTable symbols = new SymbolTable();
+        private final Map<String, Integer> nameIdsByName = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final int[] span = new int[4];
+
+        private int size;
+        private int[] parents = new int[16];
+        private int[] firstChildren = new int[16];
+        private int[] nextSiblings = new int[16];
+        private int[] nameIds = new int[16];
+        private int[] attributeStarts = new int[17];
+        private boolean[] selfClosing = new boolean[16];
+
+        private int attributeCount;
+        private int[] attributeKeys = new int[16];
+        private int[] valueStarts = new int[16];
+        private int[] valueEnds = new int[16];
+
+        private int valueLength;
+        private char[] values = new char[256];
+
+        private Builder(final ParserInput input) {
+            this.input = input;
+        }
+
+        // the element with the whitespace around it as the last child of parent, returns the position after it or -1
+        private int element(final int position, final int parent) {
+            final var start = input.scan(position, CharClass.WHITESPACE);
+            if (!input.startsWith("<", start)) {
+                input.fail(start, "\"<\"");
+                return -1;
+            }
+            final var nameEnd = LazyXmlElementParser.identifier(input, start + 1);
+            if (nameEnd < 0) {
+                return -1;
+            }
+
+            // a failed element is dropped again, also with everything that was added below it
+            final var element = add(parent, nameId(start + 1, nameEnd));
+            final var attributesBefore = attributeCount;
+            final var valuesBefore = valueLength;
+            var at = nameEnd;
+            while (true) {
+                final var next = LazyXmlElementParser.attribute(input, at, span);
+                if (next < 0) {
+                    break;
+                }
+                addAttribute(nameId(span[0], span[1]), span[2], span[3]);
+                at = next;
+            }
+
+            var end = -1;
+            if (input.startsWith("/>", at)) {
+                selfClosing[element] = true;
+                end = at + 2;
+            } else if (input.startsWith(">", at)) {
+                var childEnd = at + 1;
+                var last = NONE;
+                while (!input.isEnd(childEnd)) {
+                    final var child = size;
+                    final var next = element(childEnd, element);
+                    if (next < 0) {
+                        break;
+                    }
+                    if (last == NONE) {
+                        firstChildren[element] = child;
+                    } else {
+                        nextSiblings[last] = child;
+                    }
+                    last = child;
+                    childEnd = next;
+                }
+                end = LazyXmlElementParser.closeTag(input, start + 1, nameEnd, childEnd);
+            } else {
+                input.fail(at, "\"/>\"");
+                input.fail(at, "\">\"");
+            }
+
+            if (end < 0) {
+                size = element;
+                attributeCount = attributesBefore;
+                valueLength = valuesBefore;
+                return -1;
+            }
+            return input.scan(end, CharClass.WHITESPACE);
+        }
+
+        private int add(final int parent, final int nameId) {
+            if (size == parents.length) {
+                final var capacity = size * 2;
+                parents = Arrays.copyOf(parents, capacity);
+                firstChildren = Arrays.copyOf(firstChildren, capacity);
+                nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+                nameIds = Arrays.copyOf(nameIds, capacity);
+                attributeStarts = Arrays.copyOf(attributeStarts, capacity + 1);
+                selfClosing = Arrays.copyOf(selfClosing, capacity);
+            }
+            final var element = size++;
+            parents[element] = parent;
+            firstChildren[element] = NONE;
+            nextSiblings[element] = NONE;
+            nameIds[element] = nameId;
+            attributeStarts[element] = attributeCount;
+            selfClosing[element] = false;
+            return element;
+        }
+
+        private void addAttribute(final int keyId, final int from, final int to) {
+            if (attributeCount == attributeKeys.length) {
+                final var capacity = attributeCount * 2;
+                attributeKeys = Arrays.copyOf(attributeKeys, capacity);
+                valueStarts = Arrays.copyOf(valueStarts, capacity);
+                valueEnds = Arrays.copyOf(valueEnds, capacity);
+            }
+            if (valueLength + (to - from) > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, valueLength + (to - from)));
+            }
+            attributeKeys[attributeCount] = keyId;
+            valueStarts[attributeCount] = valueLength;
+            for (int i = from; i < to; i++) {
+                values[valueLength++] = input.charAt(i);
+            }
+            valueEnds[attributeCount] = valueLength;
+            attributeCount++;
+        }
+
+        private int nameId(final int from, final int to) {
+            final var name = symbols.intern(input.getChars(), from, to);
+            final var id = nameIdsByName.get(name);
+            if (id != null) {
+                return id;
+            }
+            nameIdsByName.put(name, names.size());
+            names.add(name);
+            return names.size() - 1;
+        }
+    }
+}
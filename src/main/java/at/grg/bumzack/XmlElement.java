@@ -2,6 +2,7 @@ package at.grg.bumzack;
 
 import org.apache.commons.lang3.tuple.Pair;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -9,11 +10,26 @@ public class XmlElement {
     private String name;
     private List<Pair<String, String>> attributes;
     private List<XmlElement> children;
+    // set by the lazy parser instead of name and attributes: slices into the source as
+    // [nameStart, nameEnd, keyStart, keyEnd, valueStart, valueEnd, ...], turned into Strings on first access
+    private CharSequence source;
+    private int[] slices;
 
     public XmlElement() {
     }
 
+    // the source must not change as long as the element is in use
+    static XmlElement ofSlices(final CharSequence source, final int[] slices) {
+        final var xml = new XmlElement();
+        xml.source = source;
+        xml.slices = slices;
+        return xml;
+    }
+
     public String getName() {
+        if (name == null && slices != null) {
+            name = slice(0);
+        }
         return name;
     }
 
@@ -22,9 +38,52 @@ public class XmlElement {
     }
 
     public List<Pair<String, String>> getAttributes() {
+        if (attributes == null && slices != null) {
+            final var count = (slices.length - 2) / 4;
+            final var list = new ArrayList<Pair<String, String>>(count);
+            for (int i = 2; i < slices.length; i += 4) {
+                list.add(Pair.of(slice(i), slice(i + 2)));
+            }
+            attributes = list;
+        }
         return attributes;
     }
 
+    public int getAttributeCount() {
+        if (attributes == null && slices != null) {
+            return (slices.length - 2) / 4;
+        }
+        return attributes == null ? 0 : attributes.size();
+    }
+
+    // the value of the first attribute with that key or null, only this value is materialized for a lazy element
+    public String getAttribute(final String key) {
+        if (attributes == null && slices != null) {
+            for (int i = 2; i < slices.length; i += 4) {
+                if (sliceEquals(i, key)) {
+                    return slice(i + 2);
+                }
+            }
+            return null;
+        }
+        if (attributes != null) {
+            for (final var attribute : attributes) {
+                if (attribute.getLeft().equals(key)) {
+                    return attribute.getRight();
+                }
+            }
+        }
+        return null;
+    }
+
+    // compares without materializing the name
+    public boolean nameEquals(final String other) {
+        if (name == null && slices != null) {
+            return sliceEquals(0, other);
+        }
+        return Objects.equals(name, other);
+    }
+
     public void setAttributes(List<Pair<String, String>> attributes) {
         this.attributes = attributes;
     }
@@ -37,11 +96,29 @@ public class XmlElement {
         this.children = children;
     }
 
+    private String slice(final int index) {
+        return source.subSequence(slices[index], slices[index + 1]).toString();
+    }
+
+    private boolean sliceEquals(final int index, final String other) {
+        final var start = slices[index];
+        final var length = slices[index + 1] - start;
+        if (other == null || other.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (source.charAt(start + i) != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public String toString() {
         return "XmlElement{" +
-                "name='" + name + '\'' +
-                ", attributes=" + attributes +
+                "name='" + getName() + '\'' +
+                ", attributes=" + getAttributes() +
                 ", children=" + children +
                 '}';
     }
@@ -51,11 +128,11 @@ public class XmlElement {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         XmlElement that = (XmlElement) o;
-        return Objects.equals(name, that.name) && Objects.equals(attributes, that.attributes) && Objects.equals(children, that.children);
+        return Objects.equals(getName(), that.getName()) && Objects.equals(getAttributes(), that.getAttributes()) && Objects.equals(children, that.children);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, attributes, children);
+        return Objects.hash(getName(), getAttributes(), children);
     }
 }
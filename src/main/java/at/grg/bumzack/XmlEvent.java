@@ -0,0 +1,41 @@
+package at.grg.bumzack;
+
+public class XmlEvent {
+    private final XmlEventTypeEnum type;
+    private final String name;
+    private final XmlElement element;
+    private final int depth;
+
+    public XmlEvent(final XmlEventTypeEnum type, final String name, final XmlElement element, final int depth) {
+        this.type = type;
+        this.name = name;
+        this.element = element;
+        this.depth = depth;
+    }
+
+    public XmlEventTypeEnum getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public XmlElement getElement() {
+        return element;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return "XmlEvent{" +
+                "type=" + type +
+                ", name='" + name + '\'' +
+                ", element=" + element +
+                ", depth=" + depth +
+                '}';
+    }
+}
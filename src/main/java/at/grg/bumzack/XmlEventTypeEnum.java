@@ -0,0 +1,5 @@
+package at.grg.bumzack;
+
+public enum XmlEventTypeEnum {
+    START, END, SINGLE
+}
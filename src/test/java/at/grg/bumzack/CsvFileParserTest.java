@@ -0,0 +1,127 @@
+package at.grg.bumzack;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CsvFileParserTest {
+
+    private static String impex(final int blocks) {
+        final var sb = new StringBuilder();
+        for (int i = 0; i < blocks; i++) {
+            sb.append("# block ").append(i).append('\n')
+                    .append("INSERT_UPDATE;code;name\n")
+                    .append(";p").append(i).append(";\"name\nof ").append(i).append("\"\n")
+                    .append("\n");
+        }
+        return sb.toString();
+    }
+
+    // windows are cut at any line break, so no value may span lines
+    private static String singleLineImpex(final int blocks) {
+        return impex(blocks).replace("\nof ", " of ");
+    }
+
+    @Test
+    void testParse_ok() {
+        final var file = "# header\nINSERT_UPDATE;code;name\n;a;\"x;y\"\n   \n# footer";
+        final var lines = new CsvFileParser().parse(file + "\n");
+
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0).getType()).isEqualTo(CsvLineTypeEnum.COMMENT);
+        assertThat(lines.get(0).getComment()).isEqualTo(" header");
+        assertThat(lines.get(1).getType()).isEqualTo(CsvLineTypeEnum.INSERT);
+        assertThat(lines.get(1).getCells()).containsExactly("code", "name");
+        assertThat(lines.get(2).getCells()).containsExactly("a", "x;y");
+        assertThat(lines.get(3).getComment()).isEqualTo(" footer");
+    }
+
+    @Test
+    void testParse_commentAtEndOfInput() {
+        final var lines = new CsvFileParser().parse("INSERT;code\n# trailing comment");
+
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(1).getType()).isEqualTo(CsvLineTypeEnum.COMMENT);
+        assertThat(lines.get(1).getComment()).isEqualTo(" trailing comment");
+
+        final var pushed = new ArrayList<CsvLine>();
+        final var parser = new PushParser<>(CsvParser.csv(), pushed::add);
+        assertThat(parser.feed("INSERT;code\n# trailing comment")).isEqualTo(ParserStatus.Incomplete);
+        assertThat(parser.finish()).isEqualTo(ParserStatus.OK);
+        assertThat(pushed).hasSize(2);
+    }
+
+    @Test
+    void testParseParallel_ok() {
+        final var file = impex(5000);
+        final var parser = new CsvFileParser(CsvParser.csv(), 256);
+        final var pool = new ForkJoinPool(4);
+
+        final var sequential = parser.parse(file);
+        final var parallel = parser.parse(file, pool);
+
+        assertThat(parallel).hasSize(15000);
+        assertThat(parallel.stream().map(CsvLine::toString).collect(Collectors.toList()))
+                .isEqualTo(sequential.stream().map(CsvLine::toString).collect(Collectors.toList()));
+        assertThat(parallel.get(14997).getComment()).isEqualTo(" block 4999");
+        assertThat(parallel.get(14999).getCells()).containsExactly("p4999", "name\nof 4999");
+        pool.shutdown();
+    }
+
+    @Test
+    void testParseParallel_error() {
+        final var file = impex(1000) + "UPDATE;broken\n" + impex(1000);
+        final var parser = new CsvFileParser(CsvParser.csv(), 256);
+        final var pool = new ForkJoinPool(4);
+
+        assertThatThrownBy(() -> parser.parse(file, pool))
+                .isInstanceOf(ParserException.class)
+                .extracting(e -> ((ParserException) e).getPosition())
+                .isEqualTo((long) impex(1000).length());
+        pool.shutdown();
+    }
+
+    @Test
+    void testParseWindows_ok(@TempDir final Path dir) throws IOException {
+        final var file = singleLineImpex(2000);
+        final var path = dir.resolve("large.impex");
+        Files.writeString(path, file);
+        final var parser = new CsvFileParser(CsvParser.csv(), 256);
+        final var pool = new ForkJoinPool(4);
+
+        final var windows = MappedCharSequence.openWindows(path, 4096);
+        assertThat(windows.size()).isGreaterThan(1);
+        final var lines = parser.parseWindows(windows, pool);
+
+        assertThat(lines.stream().map(CsvLine::toString).collect(Collectors.toList()))
+                .isEqualTo(parser.parse(file).stream().map(CsvLine::toString).collect(Collectors.toList()));
+
+        final var broken = dir.resolve("broken.impex");
+        Files.writeString(broken, singleLineImpex(1000) + "UPDATE;broken\n" + singleLineImpex(1000));
+        assertThatThrownBy(() -> parser.parseWindows(MappedCharSequence.openWindows(broken, 4096), pool))
+                .isInstanceOf(ParserException.class)
+                .extracting(e -> ((ParserException) e).getPosition())
+                .isEqualTo((long) singleLineImpex(1000).length());
+        pool.shutdown();
+    }
+
+    @Test
+    void testChunkBoundaries_quoted() {
+        final var file = "INSERT_UPDATE;code;name\n;a;\"multi\nline\nvalue\"\n;b;plain\n;c;plain\n";
+
+        final var boundaries = CsvFileParser.chunkBoundaries(file, 26);
+
+        assertThat(boundaries).containsExactly(0, file.indexOf(";b;"), file.length());
+        assertThat(CsvFileParser.chunkBoundaries(file.replace('"', '\''), 26))
+                .containsExactly(0, file.indexOf("line\n"), file.length());
+    }
+}
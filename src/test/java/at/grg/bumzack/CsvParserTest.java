@@ -4,6 +4,8 @@ package at.grg.bumzack;
 import org.junit.jupiter.api.Test;
 
 import static at.grg.bumzack.CsvParser.comment;
+import static at.grg.bumzack.CsvParser.csv;
+import static at.grg.bumzack.CsvParser.csvValueLine;
 import static at.grg.bumzack.CsvParser.csvdataLine;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -127,19 +129,58 @@ public class CsvParserTest {
         final var c = csvdataLine();
 
         final var input = "INSERT_UPDATE;halllo;123;georg ";
-        final var expected = "   hallo du";
 
         System.out.println("input       " + input);
-        System.out.println("expected    " + expected);
 
         final var result = c.parse(input);
 
         System.out.println("csvline " + result.getOutput());
-         final var expected = new CsvLine(CsvLineTypeEnum.INSERT, Map.of);
 
-        assertThat(result.getOutput()).isEqualTo(expected);
-        assertThat(result.getInput()).isEqualTo("  wer ist das  ");
+        assertThat(result.getOutput().getType()).isEqualTo(CsvLineTypeEnum.INSERT);
+        assertThat(result.getOutput().getCells()).containsExactly("halllo", "123", "georg ");
+        assertThat(result.getInput()).isEqualTo("");
         assertThat(result.getErrorMsg()).isEqualTo(null);
         assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCsvdataLine_remove() {
+        final var result = csvdataLine().parse("REMOVE;code;name\n");
+
+        assertThat(result.getOutput().getType()).isEqualTo(CsvLineTypeEnum.REMOVE);
+        assertThat(result.getInput()).isEqualTo("\n");
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(csvdataLine().parse("UPDATE;code").getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testCsvdataLine_itemType() {
+        final var result = csvdataLine().parse("INSERT_UPDATE Product[batchmode=true];code[unique=true];name\n");
+
+        assertThat(result.getOutput().getItemType()).isEqualTo("Product[batchmode=true]");
+        assertThat(result.getOutput().getCells()).containsExactly("code[unique=true]", "name");
+        assertThat(result.getInput()).isEqualTo("\n");
+        assertThat(csvdataLine().parse("INSERT;code").getOutput().getItemType()).isNull();
+        assertThat(csvdataLine().parse("INSERTED;code").getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testCsvValueLine_ok() {
+        final var result = csvValueLine().parse(";a 1;\"say \"\"hi\"\";x\";;\"two\nlines\"\n;next");
+
+        assertThat(result.getOutput().getType()).isEqualTo(CsvLineTypeEnum.VALUES);
+        assertThat(result.getOutput().getCells()).containsExactly("a 1", "say \"hi\";x", "", "two\nlines");
+        assertThat(result.getInput()).isEqualTo("\n;next");
+    }
+
+    @Test
+    void testCsv_headerAndValues() {
+        final var header = csv().parse("INSERT_UPDATE Product;code;name\n;p1;\"Product; one\"\n");
+        assertThat(header.getOutput().getCells()).containsExactly("code", "name");
+
+        final var values = csv().parse(header.getInput());
+        assertThat(values.getOutput().getType()).isEqualTo(CsvLineTypeEnum.VALUES);
+        assertThat(values.getOutput().getCells()).containsExactly("p1", "Product; one");
+        assertThat(values.getInput()).isEmpty();
+    }
+}
@@ -0,0 +1,126 @@
+package at.grg.bumzack;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static at.grg.bumzack.SimpleXmlElementParser.xmlElement;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IncrementalXmlDocumentTest {
+
+    private static final String INPUT = "<top label=\"Top\">\n" +
+            "    <semi-bottom label=\"Bottom\"/>\n" +
+            "    <middle>\n" +
+            "        <bottom label=\"Another Bottom\"/>\n" +
+            "        <bottom label=\"Last Bottom\"/>\n" +
+            "    </middle>\n" +
+            "    <tail/>\n" +
+            "</top>";
+
+    @Test
+    void testParse_ok() {
+        final var document = IncrementalXmlDocument.parse(INPUT);
+
+        assertThat(document.getRoot()).isEqualTo(xmlElement().parse(INPUT).getOutput());
+        assertThat(document.getLastParsedLength()).isEqualTo(INPUT.length());
+    }
+
+    @Test
+    void testEdit_attributeValue() {
+        final var document = IncrementalXmlDocument.parse(INPUT);
+        final var root = document.getRoot();
+        final var semiBottom = root.getChildren().get(0);
+        final var middle = root.getChildren().get(1);
+        final var first = middle.getChildren().get(0);
+        final var tail = root.getChildren().get(2);
+
+        final var offset = INPUT.indexOf("Last");
+        final var edited = document.edit(offset, 4, "Very last");
+
+        final var expected = new StringBuilder(INPUT).replace(offset, offset + 4, "Very last").toString();
+        assertThat(document.getText()).isEqualTo(expected);
+        assertThat(edited).isSameAs(root);
+        assertThat(edited).isEqualTo(xmlElement().parse(expected).getOutput());
+        assertThat(middle.getChildren().get(1).getAttributes()).isEqualTo(List.of(Pair.of("label", "Very last Bottom")));
+        assertThat(root.getChildren().get(0)).isSameAs(semiBottom);
+        assertThat(root.getChildren().get(1)).isSameAs(middle);
+        assertThat(middle.getChildren().get(0)).isSameAs(first);
+        assertThat(root.getChildren().get(2)).isSameAs(tail);
+        assertThat(document.getLastParsedLength()).isEqualTo("<bottom label=\"Very last Bottom\"/>".length());
+    }
+
+    @Test
+    void testEdit_insertChild() {
+        final var document = IncrementalXmlDocument.parse(INPUT);
+        final var middle = document.getRoot().getChildren().get(1);
+        final var first = middle.getChildren().get(0);
+        final var last = middle.getChildren().get(1);
+
+        final var offset = INPUT.indexOf("<bottom label=\"Last");
+        document.edit(offset, 0, "<inserted/>\n        ");
+
+        assertThat(document.getRoot()).isEqualTo(xmlElement().parse(document.getText()).getOutput());
+        assertThat(document.getRoot().getChildren().get(1)).isNotSameAs(middle);
+        final var children = document.getRoot().getChildren().get(1).getChildren();
+        assertThat(children).hasSize(3);
+        assertThat(children.get(0)).isSameAs(first);
+        assertThat(children.get(1).getName()).isEqualTo("inserted");
+        assertThat(children.get(2)).isSameAs(last);
+    }
+
+    @Test
+    void testEdit_sequence() {
+        final var document = IncrementalXmlDocument.parse(INPUT);
+
+        edit(document, "Top", 3, "Changed");
+        edit(document, "<tail/>", 5, "<tail x=\"1\"");
+        edit(document, "Another", 7, "A");
+        edit(document, "<semi-bottom", 0, "<first/>");
+        edit(document, "    <middle>", 4, "");
+    }
+
+    @Test
+    void testEdit_singleToParent() {
+        final var document = IncrementalXmlDocument.parse(INPUT);
+        final var root = document.getRoot();
+        final var semiBottom = root.getChildren().get(0);
+        final var middle = root.getChildren().get(1);
+
+        // the edit ends on the last char of <tail/>, so the root is the smallest element around it
+        final var offset = INPUT.indexOf("/>", INPUT.indexOf("<tail"));
+        document.edit(offset, 2, "><x/></tail>");
+
+        assertThat(document.getRoot()).isEqualTo(xmlElement().parse(document.getText()).getOutput());
+        assertThat(document.getRoot()).isNotSameAs(root);
+        assertThat(document.getRoot().getChildren().get(0)).isSameAs(semiBottom);
+        assertThat(document.getRoot().getChildren().get(1)).isSameAs(middle);
+        assertThat(document.getRoot().getChildren().get(2).getChildren()).hasSize(1);
+    }
+
+    @Test
+    void testEdit_error() {
+        final var document = IncrementalXmlDocument.parse(INPUT);
+
+        assertThatThrownBy(() -> document.edit(INPUT.indexOf("/>"), 2, ">"))
+                .isInstanceOf(ParserException.class);
+        assertThatThrownBy(() -> document.edit(INPUT.indexOf("middle"), 6, "centre"))
+                .isInstanceOf(ParserException.class);
+        assertThat(document.getText()).isEqualTo(INPUT);
+        assertThatThrownBy(() -> document.edit(INPUT.length(), 1, ""))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    private static void edit(final IncrementalXmlDocument document, final String at, final int removed, final String inserted) {
+        final var text = document.getText();
+        final var offset = text.indexOf(at);
+        final var expected = text.substring(0, offset) + inserted + text.substring(offset + removed);
+
+        document.edit(offset, removed, inserted);
+
+        assertThat(document.getText()).isEqualTo(expected);
+        assertThat(document.getRoot()).isEqualTo(xmlElement().parse(expected).getOutput());
+    }
+}
@@ -0,0 +1,110 @@
+package at.grg.bumzack;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedCharSequenceTest {
+
+    @TempDir
+    Path dir;
+
+    private Path write(final String content) throws IOException {
+        return Files.writeString(dir.resolve("input.txt"), content, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testAscii_ok() throws IOException {
+        final var content = "<top label=\"Top\">\n    <bottom label=\"Bottom\"/>\n</top>";
+        final var chars = MappedCharSequence.open(write(content));
+
+        assertThat(chars.isAscii()).isTrue();
+        assertThat(chars.length()).isEqualTo(content.length());
+        assertThat(chars.toString()).isEqualTo(content);
+
+        final var result = SimpleXmlElementParser.xmlElement().parse(new ParserInput(chars), 0);
+        assertThat(result.getOutput()).isEqualTo(SimpleXmlElementParser.xmlElement().parse(content).getOutput());
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+    }
+
+    @Test
+    void testUtf8_ok() throws IOException {
+        final var sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            sb.append("Gr\u00fc\u00dfe \u20ac").append(i).append(" \ud83d\ude00\n");
+        }
+        final var content = sb.toString();
+        final var chars = MappedCharSequence.open(write(content), 12);
+
+        assertThat(chars.isAscii()).isFalse();
+        assertThat(chars.length()).isEqualTo(content.length());
+        for (int i = 0; i < content.length(); i++) {
+            assertThat(chars.charAt(i)).isEqualTo(content.charAt(i));
+        }
+        for (int i = content.length() - 1; i >= 0; i -= 997) {
+            assertThat(chars.charAt(i)).isEqualTo(content.charAt(i));
+        }
+        assertThat(chars.subSequence(100, 5000).toString()).isEqualTo(content.substring(100, 5000));
+    }
+
+    @Test
+    void testWindows_ok() throws IOException {
+        final var sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("# comment ").append(i).append(" \u00e4\n");
+        }
+        final var content = sb.toString();
+        final var windows = MappedCharSequence.openWindows(write(content), 4000, 12);
+
+        assertThat(windows.size()).isGreaterThan(1);
+        final var joined = new StringBuilder();
+        for (final var window : windows) {
+            assertThat(window.charAt(window.length() - 1)).isEqualTo('\n');
+            joined.append(window);
+        }
+        assertThat(joined.toString()).isEqualTo(content);
+    }
+
+    @Test
+    void testCsvFile_ok() throws IOException {
+        final var sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("# block ").append(i).append(" \u00fcber\nINSERT_UPDATE;code;name\n");
+        }
+        final var path = write(sb.toString());
+        final var pool = new ForkJoinPool(2);
+
+        final var lines = new CsvFileParser(CsvParser.csv(), 1024).parse(path, StandardCharsets.UTF_8, pool);
+
+        assertThat(lines).hasSize(4000);
+        assertThat(lines.get(3998).getComment()).isEqualTo(" block 1999 \u00fcber");
+        pool.shutdown();
+    }
+
+    @Test
+    void testWrap_bytes() {
+        final var content = "  <top label=\"Gr\u00fc\u00dfe \ud83d\ude00\">\n    <bottom label=\"Bottom\"/>\n</top>";
+        final var bytes = content.getBytes(StandardCharsets.UTF_8);
+
+        final var chars = MappedCharSequence.wrap(bytes);
+        assertThat(chars.isAscii()).isFalse();
+        assertThat(chars.toString()).isEqualTo(content);
+        final var result = SimpleXmlElementParser.xmlElement().parse(ParserInput.session(chars), 0);
+        assertThat(result.getOutput()).isEqualTo(SimpleXmlElementParser.xmlElement().parse(content).getOutput());
+
+        final var buffer = ByteBuffer.allocateDirect(bytes.length + 4);
+        buffer.put(new byte[]{'x', 'x'}).put("<a/>".getBytes(StandardCharsets.US_ASCII)).flip().position(2);
+        final var ascii = MappedCharSequence.wrap(buffer);
+        assertThat(ascii.isAscii()).isTrue();
+        assertThat(ascii.toString()).isEqualTo("<a/>");
+        assertThat(SimpleXmlElementParser.xmlElement().parse(new ParserInput(ascii), 0).getOutput().getName()).isEqualTo("a");
+    }
+}
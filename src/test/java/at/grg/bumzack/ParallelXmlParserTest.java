@@ -0,0 +1,84 @@
+package at.grg.bumzack;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParallelXmlParserTest {
+
+    private static String records(final int count) {
+        final var sb = new StringBuilder("<records kind=\"test\">\n");
+        for (int i = 0; i < count; i++) {
+            sb.append("  <record id=\"").append(i).append("\" note=\"a > b\">\n")
+                    .append("    <field name=\"code\"/>\n")
+                    .append("    <nested><field name=\"deep\"/></nested>\n")
+                    .append("  </record>\n");
+            if (i % 7 == 0) {
+                sb.append("  <marker/>\n");
+            }
+        }
+        return sb.append("</records>\n").toString();
+    }
+
+    @Test
+    void testParse_sameAsSequential() {
+        final var document = records(2000);
+        final var parser = new ParallelXmlParser(SimpleXmlElementParser.xmlElement(), 256);
+        final var pool = new ForkJoinPool(4);
+        try {
+            final var root = parser.parse(document, pool);
+
+            assertThat(root).isEqualTo(SimpleXmlElementParser.xmlElement().parse(document).getOutput());
+            assertThat(root.getChildren()).hasSize(2000 + 286);
+            assertThat(root.getChildren().get(1999 + 286).getAttributes().get(0).getRight()).isEqualTo("1999");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testChildBoundaries_ok() {
+        final var document = "<r><a x=\"</b>\"><b/></a> <c/><d></d></r>";
+
+        final var boundaries = ParallelXmlParser.childBoundaries(document, 3, 1);
+
+        assertThat(boundaries).containsExactly(
+                document.indexOf("<a"), document.indexOf("<c"), document.indexOf("<d"), document.lastIndexOf("</r>"));
+        assertThat(ParallelXmlParser.childBoundaries("<r><a>", 3, 1)).isNull();
+    }
+
+    @Test
+    void testParse_small() {
+        final var pool = new ForkJoinPool(2);
+        try {
+            final var parser = new ParallelXmlParser();
+
+            assertThat(parser.parse("  <single a=\"1\"/>  ", pool).getName()).isEqualTo("single");
+            assertThat(parser.parse("<empty></empty>", pool).getChildren()).isEmpty();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testParse_error() {
+        final var parser = new ParallelXmlParser(SimpleXmlElementParser.xmlElement(), 16);
+        final var pool = new ForkJoinPool(2);
+        try {
+            final var broken = records(50).replace("<record id=\"30\"", "<record id=\"30\" broken");
+            assertThatThrownBy(() -> parser.parse(broken, pool))
+                    .isInstanceOf(ParserException.class);
+            assertThatThrownBy(() -> parser.parse(records(50).replace("</records>", "</other>"), pool))
+                    .isInstanceOf(ParserException.class);
+            assertThatThrownBy(() -> parser.parse(records(50) + "<more/>", pool))
+                    .isInstanceOf(ParserException.class);
+            assertThatThrownBy(() -> parser.parse("<r>text<a/><b/></r>", pool))
+                    .isInstanceOf(ParserException.class);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package at.grg.bumzack;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static at.grg.bumzack.Parser.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParserCompilerTest {
+
+    private static final String XML = "<top label=\"Top\">\n" +
+            "    <semi-bottom label=\"Bottom\"/>\n" +
+            "    <middle><bottom label=\"Another Bottom\"/></middle>\n" +
+            "</top>";
+
+    @Test
+    void testXmlElement_ok() {
+        final var compiled = ParserCompiler.compile(SimpleXmlElementParser.xmlElement());
+
+        final var result = compiled.parse(XML);
+        assertThat(compiled).isNotSameAs(SimpleXmlElementParser.xmlElement());
+        assertThat(result.getOutput()).isEqualTo(SimpleXmlElementParser.xmlElement().parse(XML).getOutput());
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(compiled.parse(new ParserInput(XML, new MemoTable(1024)), 0).getOutput()).isEqualTo(result.getOutput());
+        assertThat(compiled.parse(ParserInput.session(XML), 0).getOutput()).isEqualTo(result.getOutput());
+    }
+
+    @Test
+    void testXmlElement_error() {
+        final var compiled = ParserCompiler.compile(SimpleXmlElementParser.xmlElement());
+        final var input = "<top><middle></top>";
+
+        final var result = compiled.parse(input);
+        final var expected = SimpleXmlElementParser.xmlElement().parse(input);
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(result.getErrorMsg()).isEqualTo(expected.getErrorMsg());
+        assertThat(result.getPosition()).isEqualTo(expected.getPosition());
+    }
+
+    @Test
+    void testCsv_ok() {
+        final var compiled = ParserCompiler.compile(CsvParser.csv());
+
+        final var comment = compiled.parse("  # comment\nINSERT_UPDATE;code");
+        assertThat(comment.getOutput().getType()).isEqualTo(CsvLineTypeEnum.COMMENT);
+        assertThat(comment.getInput()).isEqualTo("INSERT_UPDATE;code");
+        assertThat(compiled.parse(comment.getInput()).getOutput().getType()).isEqualTo(CsvLineTypeEnum.INSERT);
+        assertThat(compiled.parse("REMOVE;code").getOutput().getType()).isEqualTo(CsvLineTypeEnum.REMOVE);
+        assertThat(compiled.parse("UPDATE;code").getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testRepetition_ok() {
+        final var digits = ParserCompiler.compile(oneOrMore(pred(anyChar(), Character::isDigit)));
+
+        final var result = digits.parse("123abc");
+        assertThat(result.getOutput()).isEqualTo(List.of('1', '2', '3'));
+        assertThat(result.getInput()).isEqualTo("abc");
+        assertThat(digits.parse("abc").getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(digits.parse("").getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testCompile_cached() {
+        final var compiled = ParserCompiler.compile(CsvParser.csv());
+
+        assertThat(ParserCompiler.compile(CsvParser.csv())).isSameAs(compiled);
+        assertThat(ParserCompiler.compile(oneOrMore(identifier()))).isNotSameAs(ParserCompiler.compile(oneOrMore(identifier())));
+    }
+
+    @Test
+    void testLeaf_ok() {
+        final ParserFunc<String> leaf = identifier();
+
+        assertThat(ParserCompiler.compile(leaf)).isSameAs(leaf);
+    }
+
+    @Test
+    void testRepeat_ok() {
+        final var digit = satisfy(Character::isDigit);
+        final var cell = right(matchLiteral(";"), identifier());
+
+        assertThat(ParserCompiler.compile(right(skipMany1(digit), identifier())).parse("123abc").getOutput()).isEqualTo("abc");
+        assertThat(ParserCompiler.compile(right(skipMany1(digit), identifier())).parse("abc").getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(ParserCompiler.compile(left(countMany(cell), endOfInput())).parse(";a;b;c").getOutput()).isEqualTo(3);
+        final var folded = ParserCompiler.compile(left(fold(digit, StringBuilder::new, StringBuilder::append), endOfInput()));
+        assertThat(folded.parse("4711").getOutput().toString()).isEqualTo("4711");
+    }
+}
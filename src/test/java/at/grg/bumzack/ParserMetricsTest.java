@@ -0,0 +1,74 @@
+package at.grg.bumzack;
+
+import org.junit.jupiter.api.Test;
+
+import static at.grg.bumzack.Parser.either;
+import static at.grg.bumzack.Parser.matchLiteral;
+import static at.grg.bumzack.Parser.named;
+import static at.grg.bumzack.Parser.right;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParserMetricsTest {
+
+    private static ParserMetrics.RuleStats stats(final String name) {
+        return ParserMetrics.snapshot().stream()
+                .filter(s -> s.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    void testNamed_disabled() {
+        final var parser = matchLiteral("a");
+
+        assertThat(ParserMetrics.ENABLED).isFalse();
+        assertThat(named("disabled", parser)).isSameAs(parser);
+    }
+
+    @Test
+    void testInstrument_counts() {
+        final var insert = ParserMetrics.instrument("test.insert", matchLiteral("INSERT_UPDATE"));
+        final var remove = ParserMetrics.instrument("test.remove", matchLiteral("REMOVE"));
+        final var line = ParserMetrics.instrument("test.line", right(either(insert, remove), matchLiteral(";")));
+
+        assertThat(line.parse("INSERT_UPDATE;").getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(line.parse("REMOVE;").getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(line.parse("INSERT;").getStatus()).isEqualTo(ParserStatus.Error);
+
+        final var lineStats = stats("test.line");
+        assertThat(lineStats.getInvocations()).isEqualTo(3);
+        assertThat(lineStats.getSuccesses()).isEqualTo(2);
+        assertThat(lineStats.getFailures()).isEqualTo(1);
+        assertThat(lineStats.getConsumed()).isEqualTo("INSERT_UPDATE;REMOVE;".length());
+        assertThat(lineStats.getNanos()).isPositive();
+
+        final var insertStats = stats("test.insert");
+        assertThat(insertStats.getInvocations()).isEqualTo(3);
+        assertThat(insertStats.getFailures()).isEqualTo(2);
+        assertThat(stats("test.remove").getInvocations()).isEqualTo(2);
+    }
+
+    @Test
+    void testInstrument_backtracked() {
+        final var keyword = ParserMetrics.instrument("test.keyword", right(matchLiteral("INSERT"), matchLiteral("_UPDATE")));
+        final var parser = either(keyword, matchLiteral("INSERT"));
+
+        assertThat(parser.parse("INSERT;").getStatus()).isEqualTo(ParserStatus.OK);
+
+        assertThat(stats("test.keyword").getFailures()).isEqualTo(1);
+        assertThat(stats("test.keyword").getBacktracked()).isEqualTo("INSERT".length());
+    }
+
+    @Test
+    void testFoldedStacks_ok() {
+        final var inner = ParserMetrics.instrument("test.inner", matchLiteral("b"));
+        final var outer = ParserMetrics.instrument("test.outer", right(matchLiteral("a"), inner));
+
+        for (int i = 0; i < 100; i++) {
+            outer.parse("ab");
+        }
+
+        assertThat(ParserMetrics.foldedStacks().lines())
+                .anyMatch(l -> l.matches("root;test\\.outer;test\\.inner \\d+"));
+    }
+}
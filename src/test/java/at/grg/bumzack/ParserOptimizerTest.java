@@ -0,0 +1,139 @@
+package at.grg.bumzack;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static at.grg.bumzack.Parser.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParserOptimizerTest {
+
+    private static final String XML = "<top label=\"Top\">\n" +
+            "    <semi-bottom label=\"Bottom\"/>\n" +
+            "    <middle><bottom label=\"Another Bottom\"/></middle>\n" +
+            "</top>";
+
+    @Test
+    void testMergeLiterals_ok() {
+        final var parser = ParserOptimizer.optimize(right(matchLiteral("<"), right(matchLiteral("/"), identifier())));
+
+        assertThat(parser).isInstanceOf(ParserNode.Sequence.class);
+        assertThat(((ParserNode.Sequence<?, ?, ?>) parser).getFirst()).isInstanceOf(ParserNode.Literal.class);
+        assertThat(((ParserNode.Literal) ((ParserNode.Sequence<?, ?, ?>) parser).getFirst()).getLiteral()).isEqualTo("</");
+        assertThat(parser.parse("</top>").getOutput()).isEqualTo("top");
+        assertThat(parser.parse("<top>").getStatus()).isEqualTo(ParserStatus.Error);
+
+        final var both = ParserOptimizer.optimize(pair(matchLiteral("a"), matchLiteral("b")));
+        assertThat(both.parse("abc").getOutput()).isEqualTo(Pair.of("a", "b"));
+        assertThat(both.parse("abc").getInput()).isEqualTo("c");
+    }
+
+    @Test
+    void testFuseMaps_ok() {
+        final var parser = ParserOptimizer.optimize(map(map(identifier(), String::length), n -> n * 2));
+
+        assertThat(parser).isInstanceOf(ParserNode.Mapping.class);
+        assertThat(((ParserNode.Mapping<?, ?>) parser).getParser()).isSameAs(identifier());
+        assertThat(parser.parse("abc def").getOutput()).isEqualTo(6);
+    }
+
+    @Test
+    void testChoice_ok() {
+        final var keyword = either(matchLiteral("INSERT_UPDATE"), either(matchLiteral("REMOVE"), matchLiteral("#")));
+        final var parser = ParserOptimizer.optimize(keyword);
+
+        assertThat(parser).isInstanceOf(ParserNode.Choice.class);
+        final var choice = (ParserNode.Choice<String>) parser;
+        assertThat(choice.getAlternatives()).hasSize(3);
+        assertThat(choice.candidates(new ParserInput("REMOVE"), 0)).containsExactly(1);
+        assertThat(choice.candidates(new ParserInput("xyz"), 0)).isEmpty();
+        assertThat(parser.parse("REMOVE;code").getOutput()).isEqualTo("REMOVE");
+        assertThat(parser.parse("#").getOutput()).isEqualTo("#");
+        assertThat(parser.parse("UPDATE").getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testChoice_overlap() {
+        final var parser = ParserOptimizer.optimize(either(
+                map(pair(matchLiteral("<"), identifier()), Pair::getRight),
+                either(matchLiteral("</"), map(whiteSpace(), String::valueOf))
+        ));
+        final var choice = (ParserNode.Choice<String>) parser;
+
+        assertThat(choice.candidates(new ParserInput("</a>"), 0)).containsExactly(0, 1);
+        assertThat(choice.candidates(new ParserInput(" "), 0)).containsExactly(2);
+        assertThat(parser.parse("</a>").getOutput()).isEqualTo("</");
+        assertThat(parser.parse("<a>").getOutput()).isEqualTo("a");
+        assertThat(parser.parse("\u2003").getOutput()).isEqualTo("\u2003");
+    }
+
+    @Test
+    void testChoice_wrappedAlternatives() {
+        final var parser = ParserOptimizer.optimize(choice(whitespaceWrap(matchLiteral("a")), whitespaceWrap(matchLiteral("b"))));
+        final var choice = (ParserNode.Choice<String>) parser;
+
+        assertThat(ParserOptimizer.first(whitespaceWrap(matchLiteral("a"))).isNullable()).isFalse();
+        assertThat(ParserOptimizer.first(CsvParser.comment()).isNullable()).isFalse();
+        assertThat(choice.candidates(new ParserInput("zzz"), 0)).isEmpty();
+        assertThat(choice.candidates(new ParserInput("b"), 0)).containsExactly(1);
+        assertThat(choice.candidates(new ParserInput("  b"), 0)).containsExactly(0, 1);
+        assertThat(parser.parse("  b ").getOutput()).isEqualTo("b");
+        assertThat(ParserOptimizer.first(pair(space0(), space0())).isNullable()).isTrue();
+    }
+
+    @Test
+    void testChoice_grammars() {
+        final var csv = wrappedChoice(CsvParser.csv());
+        assertThat(csv.candidates(new ParserInput("UPDATE;code"), 0)).isEmpty();
+        assertThat(csv.candidates(new ParserInput("INSERT;code"), 0)).containsExactly(1);
+        assertThat(csv.candidates(new ParserInput("# comment"), 0)).containsExactly(0);
+
+        final var xml = wrappedChoice(((ParserNode.Memo<XmlElement>) SimpleXmlElementParser.xmlElement()).getParser());
+        assertThat(xml.getAlternatives()).hasSize(2);
+        assertThat(xml.candidates(new ParserInput("text"), 0)).isEmpty();
+        assertThat(xml.candidates(new ParserInput("</top>"), 0)).containsExactly(0, 1);
+    }
+
+    // the choice p inside whitespaceWrap(p)
+    @SuppressWarnings("unchecked")
+    private static <A> ParserNode.Choice<A> wrappedChoice(final ParserFunc<A> wrapped) {
+        final var inner = (ParserNode.Sequence<?, ?, ?>) ((ParserNode.Sequence<?, ?, ?>) wrapped).getSecond();
+        return (ParserNode.Choice<A>) inner.getFirst();
+    }
+
+    @Test
+    void testCollapseWhitespaceWrap_ok() {
+        final var inner = whitespaceWrap(matchLiteral("x"));
+        final var parser = ParserOptimizer.optimize(whitespaceWrap(whitespaceWrap(inner)));
+
+        assertThat(parser.toString()).isEqualTo(inner.toString());
+        assertThat(((ParserNode.Sequence<?, ?, ?>) parser).getFirst()).isSameAs(skipSpace0());
+        assertThat(parser.parse("  x  y").getInput()).isEqualTo("y");
+    }
+
+    @Test
+    void testXmlElement_ok() {
+        final var optimized = ParserOptimizer.optimize(SimpleXmlElementParser.xmlElement());
+        final var expected = SimpleXmlElementParser.xmlElement().parse(XML).getOutput();
+
+        assertThat(optimized.parse(XML).getOutput()).isEqualTo(expected);
+        assertThat(optimized.parse(new ParserInput(XML, new MemoTable(1024)), 0).getOutput()).isEqualTo(expected);
+        assertThat(ParserCompiler.compile(optimized).parse(XML).getOutput()).isEqualTo(expected);
+        assertThat(optimized.parse("<top><middle></top>").getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testCsv_ok() {
+        final var optimized = ParserCompiler.compile(ParserOptimizer.optimize(CsvParser.csv()));
+
+        final var lines = List.of("# comment\n", "INSERT_UPDATE;code;name\n", "  #another\r");
+        for (final var line : lines) {
+            assertThat(optimized.parse(line).getOutput().toString()).isEqualTo(CsvParser.csv().parse(line).getOutput().toString());
+            assertThat(optimized.parse(line).getInput()).isEqualTo(CsvParser.csv().parse(line).getInput());
+        }
+        assertThat(optimized.parse("REMOVE;code").getOutput().getType()).isEqualTo(CsvLineTypeEnum.REMOVE);
+        assertThat(optimized.parse("UPDATE;code").getStatus()).isEqualTo(ParserStatus.Error);
+    }
+}
@@ -3,8 +3,10 @@ package at.grg.bumzack;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.Test;
 
+import java.nio.CharBuffer;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 import static at.grg.bumzack.Parser.*;
@@ -280,6 +282,15 @@ public class ParserUnitTest {
         assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
     }
 
+    @Test
+    void testSpace1_reusedBuffer() {
+        final var buffer = " \t x".toCharArray();
+
+        final var result = space1().parse(ParserInput.of(CharBuffer.wrap(buffer)), 0);
+        buffer[1] = 'y';
+        assertThat(result.getOutput()).isEqualTo(List.of(' ', '\t', ' '));
+    }
+
     @Test
     void testSpace1_error() {
         final var space1 = space1();
@@ -316,4 +327,415 @@ public class ParserUnitTest {
     }
 
 
-}
\ No newline at end of file
+    @Test
+    void testCursor_ok() {
+        final var input = new ParserInput(new StringBuilder("<my-first-element/>"));
+        final var tagOpener = pairRight(matchLiteral("<"), identifier());
+
+        final var result = tagOpener.parse(input, 0);
+        assertThat(result.getOutput()).isEqualTo("my-first-element");
+        assertThat(result.getPosition()).isEqualTo(17);
+        assertThat(result.getInput()).isEqualTo(null);
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+
+        final var rest = matchLiteral("/>").parse(input, result.getPosition());
+        assertThat(rest.getPosition()).isEqualTo(input.length());
+        assertThat(rest.getStatus()).isEqualTo(ParserStatus.OK);
+    }
+
+    @Test
+    void testCursor_error() {
+        final var input = new ParserInput("ab");
+        final var result = matchLiteral("abc").parse(input, 0);
+        assertThat(input.getFailurePosition()).isEqualTo(0);
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testFailure_shared() {
+        final var input = new ParserInput("<a><b>");
+        final var alternatives = either(matchLiteral("<b>"), pairRight(matchLiteral("<a>"), matchLiteral("<c>")));
+
+        final var result = alternatives.parse(input, 0);
+        assertThat(result).isSameAs(Result.failure());
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(input.getFailurePosition()).isEqualTo(3);
+    }
+
+    @Test
+    void testLazy_ok() {
+        final var result = parens().parse("(()())x");
+        assertThat(result.getOutput()).isEqualTo(List.of(List.of(List.of(), List.of())));
+        assertThat(result.getInput()).isEqualTo("x");
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(whitespaceWrap(identifier())).isNotSameAs(whitespaceWrap(identifier()));
+        assertThat(space0()).isSameAs(space0());
+    }
+
+    private static final ParserFunc<Object> PARENS = map(
+            zeroOrMore(right(matchLiteral("("), left(lazy(ParserUnitTest::parens), matchLiteral(")")))),
+            l -> l
+    );
+
+    private static ParserFunc<Object> parens() {
+        return PARENS;
+    }
+
+    @Test
+    void testMemo_ok() {
+        final var calls = new int[1];
+        final ParserFunc<String> counted = (input, position) -> {
+            calls[0]++;
+            return identifier().parse(input, position);
+        };
+        final var start = memo(counted);
+        final var alternatives = either(left(start, matchLiteral("/>")), left(start, matchLiteral(">")));
+
+        final var memo = new MemoTable(64);
+        final var result = alternatives.parse(new ParserInput("element>", memo), 0);
+        assertThat(result.getOutput()).isEqualTo("element");
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(calls[0]).isEqualTo(1);
+        assertThat(memo.getHits()).isEqualTo(1);
+        assertThat(memo.getMisses()).isEqualTo(1);
+
+        alternatives.parse(new ParserInput("element>"), 0);
+        assertThat(calls[0]).isEqualTo(3);
+    }
+
+    @Test
+    void testMemo_clear() {
+        final var parser = memo(identifier());
+        final var memo = new MemoTable(64);
+
+        assertThat(parser.parse(new ParserInput("first", memo), 0).getOutput()).isEqualTo("first");
+        assertThat(parser.parse(new ParserInput("second", memo), 0).getOutput()).isEqualTo("first");
+        assertThat(memo.getHits()).isEqualTo(1);
+
+        memo.clear();
+        assertThat(memo.getHits()).isZero();
+        assertThat(memo.getMisses()).isZero();
+        assertThat(parser.parse(new ParserInput("second", memo), 0).getOutput()).isEqualTo("second");
+    }
+
+    @Test
+    void testSatisfy_ok() {
+        final var digit = satisfy(Character::isDigit);
+
+        final var result = digit.parse("7up");
+        assertThat(result.getOutput()).isEqualTo('7');
+        assertThat(result.getInput()).isEqualTo("up");
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(digit.parse("up7").getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testTakeWhile_ok() {
+        final var letters = takeWhile(CharClass.LETTER);
+
+        final var result = letters.parse("h\u00e4llo w\u00f6rld");
+        assertThat(result.getOutput()).isEqualTo("h\u00e4llo");
+        assertThat(result.getInput()).isEqualTo(" w\u00f6rld");
+        assertThat(letters.parse("123").getOutput()).isEqualTo("");
+        assertThat(letters.parse("123").getStatus()).isEqualTo(ParserStatus.OK);
+    }
+
+    @Test
+    void testTakeWhile1_error() {
+        final var letters = takeWhile1(CharClass.LETTER);
+
+        final var result = letters.parse("123");
+        assertThat(result.getOutput()).isEqualTo(null);
+        assertThat(result.getErrorMsg()).isEqualTo("123");
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testSkipWhile_ok() {
+        final var skip = skipWhile(CharClass.anyOf(" \t"));
+
+        final var result = skip.parse(" \t \u2003x");
+        assertThat(result.getOutput()).isEqualTo(null);
+        assertThat(result.getInput()).isEqualTo("\u2003x");
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(whiteSpace().parse("\u2003x").getInput()).isEqualTo("x");
+    }
+
+    @Test
+    void testTakeUntil_ok() {
+        final var untilSemicolon = takeUntil(';');
+
+        final var result = untilSemicolon.parse("INSERT_UPDATE;Product");
+        assertThat(result.getOutput()).isEqualTo("INSERT_UPDATE");
+        assertThat(result.getInput()).isEqualTo(";Product");
+        assertThat(untilSemicolon.parse(new ParserInput(new StringBuilder("abc")), 1).getPosition()).isEqualTo(3);
+    }
+
+    @Test
+    void testTakeUntilAny_ok() {
+        final var line = takeUntilAny("\r\n");
+
+        final var result = line.parse("first line\r\nsecond");
+        assertThat(result.getOutput()).isEqualTo("first line");
+        assertThat(result.getInput()).isEqualTo("\r\nsecond");
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+    }
+
+    @Test
+    void testScanTo_ok() {
+        final var comment = right(matchLiteral("<!--"), scanTo("-->"));
+
+        final var result = comment.parse("<!-- a -- comment --><a/>");
+        assertThat(result.getOutput()).isEqualTo(" a -- comment ");
+        assertThat(result.getInput()).isEqualTo("<a/>");
+        assertThat(comment.parse(new ParserInput(new StringBuilder("<!-- a -- comment --><a/>")), 0).getPosition()).isEqualTo(21);
+        assertThat(comment.parse("<!-- unterminated").getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testSession_ok() {
+        final var assignment = pair(identifier(), right(matchLiteral("="), quotedString()));
+        final var input = ParserInput.session("label=\"Top\" name=\"x\"");
+
+        final var first = assignment.parse(input, 0);
+        assertThat(first.getOutput().getLeft()).isEqualTo("label");
+        assertThat(first.getOutput().getRight()).isEqualTo("Top");
+        assertThat(first.getPosition()).isEqualTo(11);
+        final var kept = input.keep(first);
+
+        final var second = assignment.parse(input, 12);
+        assertThat(second).isSameAs(first);
+        assertThat(second.getOutput().getLeft()).isEqualTo("name");
+        assertThat(kept).isNotSameAs(first);
+        assertThat(kept.getOutput().getLeft()).isEqualTo("label");
+        assertThat(kept.getPosition()).isEqualTo(11);
+        assertThat(assignment.parse(input, 11).getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testChoice_ok() {
+        final var keyword = choice(
+                map(matchLiteral("INSERT_UPDATE"), k -> CsvLineTypeEnum.INSERT),
+                map(matchLiteral("REMOVE"), k -> CsvLineTypeEnum.REMOVE),
+                map(matchLiteral("INSERT"), k -> CsvLineTypeEnum.INSERT),
+                map(matchLiteral("#"), k -> CsvLineTypeEnum.COMMENT)
+        );
+
+        final var result = keyword.parse("REMOVE;code");
+        assertThat(result.getOutput()).isEqualTo(CsvLineTypeEnum.REMOVE);
+        assertThat(result.getInput()).isEqualTo(";code");
+        assertThat(keyword.parse("INSERT;code").getOutput()).isEqualTo(CsvLineTypeEnum.INSERT);
+        assertThat(keyword.parse("INSERT;code").getInput()).isEqualTo(";code");
+        assertThat(keyword.parse("# comment").getOutput()).isEqualTo(CsvLineTypeEnum.COMMENT);
+
+        final var candidates = ((ParserNode.Choice<CsvLineTypeEnum>) keyword).candidates(new ParserInput("INSERT"), 0);
+        assertThat(candidates).containsExactly(0, 2);
+    }
+
+    @Test
+    void testChoice_error() {
+        final var keyword = choice(matchLiteral("INSERT_UPDATE"), matchLiteral("REMOVE"));
+
+        final var result = keyword.parse("UPDATE;code");
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(result.getErrorMsg()).isEqualTo("UPDATE;code");
+        assertThat(keyword.parse("").getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(ParserCompiler.compile(keyword).parse("REMOVE").getOutput()).isEqualTo("REMOVE");
+        assertThat(ParserCompiler.compile(keyword).parse("UPDATE").getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testOneOfLiterals_ok() {
+        final var keyword = oneOfLiterals(Map.of(
+                "INSERT", CsvLineTypeEnum.INSERT,
+                "INSERT_UPDATE", CsvLineTypeEnum.INSERT,
+                "REMOVE", CsvLineTypeEnum.REMOVE
+        ));
+
+        final var result = keyword.parse("INSERT_UPDATE;code");
+        assertThat(result.getOutput()).isEqualTo(CsvLineTypeEnum.INSERT);
+        assertThat(result.getInput()).isEqualTo(";code");
+        assertThat(keyword.parse("INSERT_UPD;code").getInput()).isEqualTo("_UPD;code");
+        assertThat(keyword.parse("REMOVE").getOutput()).isEqualTo(CsvLineTypeEnum.REMOVE);
+        assertThat(((LiteralTrie<CsvLineTypeEnum>) keyword).getLiterals()).containsExactly("INSERT", "INSERT_UPDATE", "REMOVE");
+    }
+
+    @Test
+    void testOneOfLiterals_error() {
+        final var keyword = oneOfLiterals(Map.of("INSERT", 1, "REMOVE", 2));
+
+        final var result = keyword.parse("INSER;code");
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(result.getErrorMsg()).isEqualTo("INSER;code");
+
+        final var input = new ParserInput("REM");
+        assertThat(keyword.parse(input, 0).getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(input.hitEnd()).isTrue();
+    }
+
+    @Test
+    void testSkipMany_ok() {
+        final var digit = satisfy(Character::isDigit);
+
+        final var skipped = skipMany(digit).parse("123abc");
+        assertThat(skipped.getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(skipped.getOutput()).isNull();
+        assertThat(skipped.getInput()).isEqualTo("abc");
+        assertThat(skipMany(digit).parse("abc").getInput()).isEqualTo("abc");
+        assertThat(skipMany1(digit).parse("1a").getInput()).isEqualTo("a");
+    }
+
+    @Test
+    void testSkipMany_error() {
+        final var digit = satisfy(Character::isDigit);
+
+        assertThat(skipMany1(digit).parse("abc").getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(skipMany1(digit).parse("").getStatus()).isEqualTo(ParserStatus.Error);
+    }
+
+    @Test
+    void testCountMany_ok() {
+        final var cell = right(matchLiteral(";"), identifier());
+
+        assertThat(countMany(cell).parse(";code;name;x rest").getOutput()).isEqualTo(3);
+        assertThat(countMany(cell).parse("rest").getOutput()).isEqualTo(0);
+    }
+
+    @Test
+    void testFold_ok() {
+        final var digits = fold(satisfy(Character::isDigit), StringBuilder::new, StringBuilder::append);
+        final var sum = fold(satisfy(Character::isDigit), () -> new int[1], (acc, c) -> {
+            acc[0] += c - '0';
+            return acc;
+        });
+
+        assertThat(digits.parse("123abc").getOutput().toString()).isEqualTo("123");
+        assertThat(digits.parse("abc").getOutput().toString()).isEmpty();
+        assertThat(sum.parse("1234").getOutput()[0]).isEqualTo(10);
+    }
+
+    @Test
+    void testWhitespaceWrap_skipsSpace() {
+        final var parser = whitespaceWrap(identifier());
+
+        final var result = parser.parse("   hello   world");
+        assertThat(result.getOutput()).isEqualTo("hello");
+        assertThat(result.getInput()).isEqualTo("world");
+        assertThat(((ParserNode.Sequence<?, ?, ?>) parser).getFirst()).isSameAs(skipSpace0());
+    }
+
+    @Test
+    void testError_expectedMerged() {
+        final var parser = right(matchLiteral("<"), either(identifier(), either(matchLiteral("!--"), matchLiteral("?"))));
+
+        final var result = parser.parse("<1abc>");
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(result.getError().getOffset()).isEqualTo(1);
+        assertThat(result.getError().getExpected()).containsExactly("identifier", "\"!--\"", "\"?\"");
+        assertThat(result.getError().toString()).isEqualTo("line 1, column 2: expected identifier or \"!--\" or \"?\"");
+    }
+
+    @Test
+    void testError_optimizedChoice() {
+        final var parser = either(matchLiteral("ab"), matchLiteral("cd"));
+        final var optimized = ParserOptimizer.optimize(parser);
+
+        assertThat(optimized).isInstanceOf(ParserNode.Choice.class);
+        for (final var p : List.of(parser, optimized, ParserCompiler.compile(optimized))) {
+            assertThat(p.parse("x").getError().toString()).isEqualTo("line 1, column 1: expected \"ab\" or \"cd\"");
+        }
+
+        final var csv = CsvParser.csv().parse("UPDATE;code\n").getError().getExpected();
+        assertThat(csv).contains("\"#\"");
+        assertThat(csv).anyMatch(e -> e.contains("INSERT") && e.contains("REMOVE"));
+        assertThat(csv).doesNotContain("skipWhile");
+    }
+
+    @Test
+    void testError_skippedAlternativeNotRun() {
+        final var runs = new int[1];
+        final var counting = new ParserNode.Primitive<String>("x", c -> c == 'x', false) {
+            @Override
+            public Result<String> parse(final ParserInput input, final int position) {
+                runs[0]++;
+                return fail(input, position);
+            }
+        };
+        final var parser = ParserOptimizer.optimize(either(matchLiteral("ab"), counting));
+
+        for (final var p : List.of(parser, ParserCompiler.compile(parser))) {
+            assertThat(p.parse("ac").getError().getExpected()).containsExactly("\"ab\"", "x");
+        }
+        assertThat(runs[0]).isZero();
+    }
+
+    @Test
+    void testError_furthestWins() {
+        final var parser = either(right(matchLiteral("ab"), matchLiteral("c")), matchLiteral("x"));
+
+        final var result = parser.parse("abd");
+        assertThat(result.getError().getOffset()).isEqualTo(2);
+        assertThat(result.getError().getExpected()).containsExactly("\"c\"");
+        assertThat(result.getErrorMsg()).isEqualTo("d");
+    }
+
+    @Test
+    void testError_lineColumn() {
+        final var line = left(right(matchLiteral("INSERT;"), identifier()), matchLiteral("\n"));
+        final var parser = right(line, right(line, line));
+
+        final var result = parser.parse("INSERT;a\nINSERT;b\nINSERT;;\n");
+        assertThat(result.getError().getLine()).isEqualTo(3);
+        assertThat(result.getError().getColumn()).isEqualTo(8);
+        assertThat(result.getError().getExpected()).containsExactly("identifier");
+    }
+
+    @Test
+    void testError_boundedMessage() {
+        final var input = "x" + "y".repeat(100_000);
+
+        final var result = matchLiteral("a").parse(input);
+        assertThat(result.getErrorMsg()).hasSize(ParserInput.ERROR_CONTEXT);
+        assertThat(result.getError().getOffset()).isEqualTo(0);
+        assertThat(result.getError().getLine()).isEqualTo(1);
+    }
+
+    @Test
+    void testSymbolTable_ok() {
+        final var symbols = new SymbolTable();
+        final var text = "<item><item>";
+
+        final var first = symbols.intern(text, 1, 5);
+        final var second = symbols.intern(text, 7, 11);
+        assertThat(first).isEqualTo("item");
+        assertThat(second).isSameAs(first);
+        assertThat(symbols.intern(new StringBuilder("item"))).isSameAs(first);
+        assertThat(symbols.intern("items", 0, 5)).isEqualTo("items").isNotSameAs(first);
+        assertThat(symbols.size()).isEqualTo(2);
+
+        final var longName = "x".repeat(SymbolTable.MAX_SYMBOL_LENGTH + 1);
+        assertThat(symbols.intern(longName)).isEqualTo(longName);
+        assertThat(symbols.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testSymbolTable_bounded() {
+        final var symbols = new SymbolTable(16);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(symbols.intern("name" + i)).isEqualTo("name" + i);
+        }
+        assertThat(symbols.size()).isLessThanOrEqualTo(16);
+    }
+
+    @Test
+    void testIdentifier_symbols() {
+        final var parser = oneOrMore(left(identifier(), matchLiteral(";")));
+        final var input = ParserInput.of("code;name;code;");
+        input.setSymbols(new SymbolTable());
+
+        final var names = parser.parse(input, 0).getOutput();
+        assertThat(names).containsExactly("code", "name", "code");
+        assertThat(names.get(2)).isSameAs(names.get(0));
+        assertThat(parser.parse("code;code;").getOutput().get(1)).isNotSameAs(names.get(0));
+    }
+}
@@ -0,0 +1,127 @@
+package at.grg.bumzack;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PushParserTest {
+
+    private static final String IMPEX = "# header\nINSERT_UPDATE;code;name\nREMOVE;code\n# footer\n";
+
+    private static final String XML = "<top label=\"Top\">\n" +
+            "    <semi-bottom label=\"Bottom\"/>\n" +
+            "</top>\n" +
+            "<next><inner/></next>";
+
+    @Test
+    void testFeed_csvChunks() {
+        for (final var size : new int[]{1, 3, 7, IMPEX.length()}) {
+            final var lines = new ArrayList<CsvLine>();
+            final var parser = new PushParser<>(CsvParser.csv(), lines::add, 16);
+
+            for (int i = 0; i < IMPEX.length(); i += size) {
+                assertThat(parser.feed(IMPEX.substring(i, Math.min(i + size, IMPEX.length())))).isEqualTo(ParserStatus.Incomplete);
+            }
+            assertThat(parser.finish()).isEqualTo(ParserStatus.OK);
+
+            assertThat(lines.stream().map(CsvLine::getType).collect(Collectors.toList())).containsExactly(
+                    CsvLineTypeEnum.COMMENT, CsvLineTypeEnum.INSERT, CsvLineTypeEnum.REMOVE, CsvLineTypeEnum.COMMENT);
+            assertThat(parser.getConsumed()).isEqualTo(IMPEX.length());
+            assertThat(parser.getBuffered()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    void testFeed_keepsOnlyTheOpenValue() {
+        final var lines = new ArrayList<CsvLine>();
+        final var parser = new PushParser<>(CsvParser.csv(), lines::add);
+
+        assertThat(parser.feed("INSERT;code\nREMOVE;co")).isEqualTo(ParserStatus.Incomplete);
+        assertThat(lines).hasSize(1);
+        assertThat(parser.getConsumed()).isEqualTo("INSERT;code\n".length());
+        assertThat(parser.getBuffered()).isEqualTo("REMOVE;co".length());
+
+        assertThat(parser.feed("de\n")).isEqualTo(ParserStatus.Incomplete);
+        assertThat(parser.finish()).isEqualTo(ParserStatus.OK);
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(1).getType()).isEqualTo(CsvLineTypeEnum.REMOVE);
+    }
+
+    @Test
+    void testFeed_xmlElements() {
+        final var elements = new ArrayList<XmlElement>();
+        final var parser = new PushParser<>(SimpleXmlElementParser.xmlElement(), elements::add, 16);
+
+        for (int i = 0; i < XML.length(); i += 5) {
+            assertThat(parser.feed(XML.substring(i, Math.min(i + 5, XML.length())))).isEqualTo(ParserStatus.Incomplete);
+        }
+        assertThat(elements).hasSize(1);
+        assertThat(parser.finish()).isEqualTo(ParserStatus.OK);
+
+        assertThat(elements).hasSize(2);
+        assertThat(elements.get(0)).isEqualTo(SimpleXmlElementParser.xmlElement().parse(XML).getOutput());
+        assertThat(elements.get(1).getName()).isEqualTo("next");
+    }
+
+    @Test
+    void testFeed_error() {
+        final var lines = new ArrayList<CsvLine>();
+        final var parser = new PushParser<>(CsvParser.csv(), lines::add);
+
+        assertThat(parser.feed("INSERT;code\n")).isEqualTo(ParserStatus.Incomplete);
+        assertThat(parser.feed("UPDATE;code\nREMOVE;code\n")).isEqualTo(ParserStatus.Error);
+        assertThat(parser.getErrorPosition()).isEqualTo("INSERT;code\n".length());
+        assertThat(parser.feed("REMOVE;code\n")).isEqualTo(ParserStatus.Error);
+        assertThat(lines).hasSize(1);
+    }
+
+    @Test
+    void testFinish_error() {
+        final var parser = new PushParser<>(SimpleXmlElementParser.xmlElement(), e -> {
+        });
+
+        assertThat(parser.feed("<top><open>")).isEqualTo(ParserStatus.Incomplete);
+        assertThat(parser.finish()).isEqualTo(ParserStatus.Error);
+        assertThatThrownBy(() -> parser.feed("</open></top>"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testFeed_lazyXmlOnReusedBuffer() {
+        final var names = new ArrayList<XmlElement>();
+        final var parser = new PushParser<>(SimpleXmlElementParser.lazyXmlElement(), names::add, 16);
+
+        for (final var chunk : new String[]{"<alpha/> ", "<beta/> ", "<gamma/> ", "<delta/>"}) {
+            parser.feed(chunk);
+        }
+        assertThat(parser.finish()).isEqualTo(ParserStatus.OK);
+
+        assertThat(names.stream().map(XmlElement::getName).collect(Collectors.toList()))
+                .containsExactly("alpha", "beta", "gamma", "delta");
+    }
+
+    @Test
+    void testFeed_rescanIsLinear() {
+        final var xml = "<root>" + "<item a=\"1\"/>".repeat(20_000) + "</root>";
+        final var scanned = new long[1];
+        final ParserFunc<XmlElement> counting = (input, position) -> {
+            // upper bound of the chars one attempt can look at
+            scanned[0] += input.length() - position;
+            return SimpleXmlElementParser.xmlElement().parse(input, position);
+        };
+        final var elements = new ArrayList<XmlElement>();
+        final var parser = new PushParser<>(counting, elements::add);
+
+        for (int i = 0; i < xml.length(); i += 64) {
+            assertThat(parser.feed(xml.substring(i, Math.min(i + 64, xml.length())))).isEqualTo(ParserStatus.Incomplete);
+        }
+        assertThat(parser.finish()).isEqualTo(ParserStatus.OK);
+
+        assertThat(elements).containsExactly(SimpleXmlElementParser.xmlElement().parse(xml).getOutput());
+        assertThat(scanned[0]).isLessThanOrEqualTo(4L * xml.length());
+    }
+}
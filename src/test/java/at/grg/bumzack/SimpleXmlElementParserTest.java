@@ -92,4 +92,97 @@ public class SimpleXmlElementParserTest {
         assertThat(result.getErrorMsg()).isEqualTo(null);
         assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testXmlParentElement_error() {
+        final var parentElement = xmlElement();
+
+        final var input = "<top><middle></bottom></top>";
+        final var result = parentElement.parse(input);
+
+        assertThat(result.getOutput()).isEqualTo(null);
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(xmlElement()).isSameAs(parentElement);
+    }
+
+    @Test
+    void testXmlElement_memo() {
+        final var input = "<top label=\"Top\">\n" +
+                "    <semi-bottom label=\"Bottom\"/>\n" +
+                "    <middle><bottom label=\"Another Bottom\"/></middle>\n" +
+                "</top>";
+
+        final var memo = new MemoTable(1024);
+        final var result = xmlElement().parse(new ParserInput(input, memo), 0);
+
+        assertThat(result.getOutput()).isEqualTo(xmlElement().parse(input).getOutput());
+        assertThat(result.getPosition()).isEqualTo(input.length());
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(memo.getHits()).isGreaterThan(0);
+    }
+
+    @Test
+    void testXmlElement_session() {
+        final var input = "<top label=\"Top\">\n" +
+                "    <semi-bottom label=\"Bottom\"/>\n" +
+                "    <middle><bottom label=\"Another Bottom\"/></middle>\n" +
+                "</top>";
+
+        final var result = xmlElement().parse(ParserInput.session(input, new MemoTable(1024)), 0);
+
+        assertThat(result.getOutput()).isEqualTo(xmlElement().parse(input).getOutput());
+        assertThat(result.getPosition()).isEqualTo(input.length());
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(xmlElement().parse(ParserInput.session(input), 0).getOutput()).isEqualTo(result.getOutput());
+    }
+
+    @Test
+    void testLazyXmlElement_ok() {
+        final var input = "  <top label=\"Top\">\n" +
+                "    <semi-bottom label=\"Bottom\" id=\"7\"/>\n" +
+                "    <middle><bottom label=\"Another Bottom\"/><empty></empty></middle>\n" +
+                "</top> ";
+
+        final var result = lazyXmlElement().parse(input);
+        final var expected = xmlElement().parse(input);
+
+        assertThat(result.getStatus()).isEqualTo(ParserStatus.OK);
+        assertThat(result.getPosition()).isEqualTo(expected.getPosition());
+        final var top = result.getOutput();
+        final var semiBottom = top.getChildren().get(0);
+        assertThat(semiBottom.getAttributeCount()).isEqualTo(2);
+        assertThat(semiBottom.getAttribute("id")).isEqualTo("7");
+        assertThat(semiBottom.getAttribute("missing")).isNull();
+        assertThat(semiBottom.nameEquals("semi-bottom")).isTrue();
+        assertThat(top).isEqualTo(expected.getOutput());
+        assertThat(top.hashCode()).isEqualTo(expected.getOutput().hashCode());
+        assertThat(semiBottom.getAttributes()).isEqualTo(List.of(Pair.of("label", "Bottom"), Pair.of("id", "7")));
+    }
+
+    @Test
+    void testLazyXmlElement_setters() {
+        final var element = lazyXmlElement().parse("<a x=\"1\"/>").getOutput();
+
+        element.setName("b");
+        element.setAttributes(List.of(Pair.of("y", "2")));
+
+        assertThat(element.getName()).isEqualTo("b");
+        assertThat(element.nameEquals("b")).isTrue();
+        assertThat(element.getAttribute("y")).isEqualTo("2");
+        assertThat(element.getAttribute("x")).isNull();
+        assertThat(element.getAttributeCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testLazyXmlElement_error() {
+        for (final var input : List.of("<top><middle></bottom></top>", "<a >", "<a></b>", "<a> </a>", "<a x=\"1/>", "<a x=1/>", "a")) {
+            final var result = lazyXmlElement().parse(input);
+
+            assertThat(result.getStatus()).as(input).isEqualTo(xmlElement().parse(input).getStatus());
+            assertThat(result.getStatus()).as(input).isEqualTo(ParserStatus.Error);
+        }
+        final var input = ParserInput.of("<a><b></a>");
+        assertThat(lazyXmlElement().parse(input, 0).getStatus()).isEqualTo(ParserStatus.Error);
+        assertThat(input.error().getExpected()).containsExactly("\"b\"");
+    }
+}
@@ -0,0 +1,86 @@
+package at.grg.bumzack;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StreamingXmlParserTest {
+
+    private static final String INPUT = "<top label=\"Top\">\n" +
+            "            <semi-bottom label=\"Bottom\"/>\n" +
+            "            <middle>\n" +
+            "                <bottom label=\"Another Bottom\"/>\n" +
+            "            </middle>\n" +
+            "        </top>";
+
+    @Test
+    void testEvents_ok() {
+        final var parser = new StreamingXmlParser(new StringReader(INPUT), 16);
+
+        final var events = new ArrayList<String>();
+        parser.forEachRemaining(e -> events.add(e.getType() + " " + e.getName() + " " + e.getDepth()));
+
+        assertThat(events).containsExactly(
+                "START top 0",
+                "SINGLE semi-bottom 1",
+                "START middle 1",
+                "SINGLE bottom 2",
+                "END middle 1",
+                "END top 0"
+        );
+        assertThat(parser.getDepth()).isEqualTo(0);
+    }
+
+    @Test
+    void testEvents_attributes() {
+        final var parser = new StreamingXmlParser(new StringReader("<a one=\"1\"    two=\"a long value spanning the buffer\"/>"), 16);
+
+        final var event = parser.next();
+        assertThat(event.getType()).isEqualTo(XmlEventTypeEnum.SINGLE);
+        assertThat(event.getElement().getAttributes())
+                .isEqualTo(List.of(Pair.of("one", "1"), Pair.of("two", "a long value spanning the buffer")));
+        assertThat(parser.hasNext()).isFalse();
+    }
+
+    @Test
+    void testSubtrees_ok() {
+        final var channel = Channels.newChannel(new ByteArrayInputStream(INPUT.getBytes(StandardCharsets.UTF_8)));
+        final var parser = StreamingXmlParser.of(channel, StandardCharsets.UTF_8);
+
+        final var subtrees = new ArrayList<XmlElement>();
+        parser.forEachSubtree(1, subtrees::add);
+
+        final var expected = SimpleXmlElementParser.xmlElement().parse(INPUT).getOutput().getChildren();
+        assertThat(subtrees).isEqualTo(expected);
+    }
+
+    @Test
+    void testEvents_error() {
+        final var parser = new StreamingXmlParser(new StringReader("<top><middle></top>"), 16);
+
+        assertThat(parser.next().getName()).isEqualTo("top");
+        assertThat(parser.next().getName()).isEqualTo("middle");
+        assertThatThrownBy(parser::next)
+                .isInstanceOf(ParserException.class)
+                .hasMessageContaining("expected </middle>");
+    }
+
+    @Test
+    void testEvents_truncated() {
+        final var parser = new StreamingXmlParser(new StringReader("<top><middle label=\"unfinished"), 16);
+
+        assertThat(parser.next().getName()).isEqualTo("top");
+        assertThatThrownBy(parser::next)
+                .isInstanceOf(ParserException.class)
+                .hasMessageContaining("unexpected end of input in tag at offset 5");
+    }
+}
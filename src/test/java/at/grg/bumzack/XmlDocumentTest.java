@@ -0,0 +1,78 @@
+package at.grg.bumzack;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static at.grg.bumzack.SimpleXmlElementParser.xmlElement;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class XmlDocumentTest {
+
+    private static final String INPUT = "<top label=\"Top\">\n" +
+            "    <semi-bottom label=\"Bottom\" id=\"7\"/>\n" +
+            "    <middle>\n" +
+            "        <bottom label=\"Another Bottom\"/>\n" +
+            "        <bottom label=\"Last Bottom\"/>\n" +
+            "    </middle>\n" +
+            "    <empty></empty>\n" +
+            "</top>\n";
+
+    @Test
+    void testParse_ok() {
+        final var document = XmlDocument.parse(INPUT);
+
+        assertThat(document.size()).isEqualTo(6);
+        assertThat(document.toXmlElement()).isEqualTo(xmlElement().parse(INPUT).getOutput());
+        assertThat(document.getName(0)).isEqualTo("top");
+        assertThat(document.getParent(0)).isEqualTo(XmlDocument.NONE);
+        assertThat(document.getAttributeCount(1)).isEqualTo(2);
+        assertThat(document.getAttributeName(1, 1)).isEqualTo("id");
+        assertThat(document.getAttributeValue(1, 1)).isEqualTo("7");
+        assertThat(document.getAttribute(4, "label")).isEqualTo("Last Bottom");
+        assertThat(document.getAttribute(4, "id")).isNull();
+        assertThat(document.getNameId(3)).isEqualTo(document.getNameId(4));
+        assertThat(document.getNameOfId(document.getNameId(3))).isEqualTo("bottom");
+    }
+
+    @Test
+    void testCursor_ok() {
+        final var document = XmlDocument.parse(INPUT);
+        final var cursor = document.cursor();
+
+        assertThat(cursor.getName()).isEqualTo("top");
+        assertThat(cursor.toParent()).isFalse();
+        assertThat(cursor.toFirstChild()).isTrue();
+        final var names = new ArrayList<String>();
+        do {
+            names.add(cursor.getName());
+        } while (cursor.toNextSibling());
+        assertThat(names).containsExactly("semi-bottom", "middle", "empty");
+        assertThat(cursor.toFirstChild()).isFalse();
+        assertThat(cursor.getName()).isEqualTo("empty");
+        assertThat(cursor.toXmlElement().getChildren()).isEmpty();
+
+        cursor.toElement(2);
+        assertThat(cursor.toFirstChild()).isTrue();
+        assertThat(cursor.getAttribute("label")).isEqualTo("Another Bottom");
+        assertThat(cursor.toXmlElement().getChildren()).isNull();
+        assertThat(cursor.toParent()).isTrue();
+        assertThat(cursor.getElement()).isEqualTo(2);
+        assertThat(cursor.toParent()).isTrue();
+        assertThat(cursor.getElement()).isEqualTo(0);
+    }
+
+    @Test
+    void testParse_error() {
+        assertThatThrownBy(() -> XmlDocument.parse("<top><middle></bottom></top>"))
+                .isInstanceOf(ParserException.class);
+        assertThatThrownBy(() -> XmlDocument.parse("<a/><b/>"))
+                .isInstanceOf(ParserException.class)
+                .hasMessageContaining("after the root element");
+        assertThatThrownBy(() -> XmlDocument.parse("<a x=\"1\"><b y=\"2\"></a>"))
+                .isInstanceOf(ParserException.class);
+        assertThatThrownBy(() -> XmlDocument.parse("<a/>").cursor().toElement(1))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+}